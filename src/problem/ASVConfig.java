@@ -1,10 +1,12 @@
 package problem;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Represents a configuration of the ASVs. This class doesn't do any validity
@@ -130,6 +132,47 @@ public class ASVConfig {
 		return asvPositions.get(asvNo);
 	}
 
+	/**
+	 * Returns the x-coordinate of the ASV with the given number.
+	 *
+	 * @param asvNo
+	 *            the number of the ASV.
+	 * @return the x-coordinate of the ASV with the given number.
+	 */
+	public double getX(int asvNo) {
+		return asvPositions.get(asvNo).getX();
+	}
+
+	/**
+	 * Returns the y-coordinate of the ASV with the given number.
+	 *
+	 * @param asvNo
+	 *            the number of the ASV.
+	 * @return the y-coordinate of the ASV with the given number.
+	 */
+	public double getY(int asvNo) {
+		return asvPositions.get(asvNo).getY();
+	}
+
+	/**
+	 * Returns the smallest rectangle containing all of the ASVs.
+	 *
+	 * @return the bounding box of the ASVs.
+	 */
+	public Rectangle2D getBounds() {
+		double minX = getX(0);
+		double minY = getY(0);
+		double maxX = minX;
+		double maxY = minY;
+		for (int i = 1; i < getASVCount(); i++) {
+			minX = Math.min(minX, getX(i));
+			minY = Math.min(minY, getY(i));
+			maxX = Math.max(maxX, getX(i));
+			maxY = Math.max(maxY, getY(i));
+		}
+		return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+	}
+
 	/**
 	 * Returns the number of ASVs in this configuration.
 	 *
@@ -147,4 +190,14 @@ public class ASVConfig {
 	public List<Point2D> getASVPositions() {
 		return new ArrayList<Point2D>(asvPositions);
 	}
+
+	/**
+	 * Returns a read-only view of the positions of all the ASVs, in order,
+	 * without copying them.
+	 *
+	 * @return a read-only view of the positions of all the ASVs.
+	 */
+	public List<Point2D> getASVPositionsView() {
+		return Collections.unmodifiableList(asvPositions);
+	}
 }
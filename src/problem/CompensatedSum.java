@@ -0,0 +1,63 @@
+package problem;
+
+/**
+ * Accumulates a sum of doubles using Neumaier's variant of Kahan summation,
+ * which keeps a running compensation term for the low-order bits lost in each
+ * addition. The error of the result is independent of the number of terms,
+ * rather than growing with it as it does for naive summation.
+ *
+ * @author lackofcheese
+ */
+public final class CompensatedSum {
+	/** The running sum */
+	private double sum = 0;
+	/** The accumulated rounding error */
+	private double compensation = 0;
+
+	/**
+	 * Adds a value to the sum.
+	 *
+	 * @param value
+	 *            the value to add.
+	 */
+	public void add(double value) {
+		double t = sum + value;
+		if (Math.abs(sum) >= Math.abs(value)) {
+			compensation += (sum - t) + value;
+		} else {
+			compensation += (value - t) + sum;
+		}
+		sum = t;
+	}
+
+	/**
+	 * Adds another compensated sum to this one.
+	 *
+	 * @param other
+	 *            the sum to add.
+	 */
+	public void add(CompensatedSum other) {
+		add(other.sum);
+		add(other.compensation);
+	}
+
+	/**
+	 * Resets the sum to the given value.
+	 *
+	 * @param value
+	 *            the new value of the sum.
+	 */
+	public void set(double value) {
+		sum = value;
+		compensation = 0;
+	}
+
+	/**
+	 * Returns the compensated value of the sum.
+	 *
+	 * @return the compensated value of the sum.
+	 */
+	public double getValue() {
+		return sum + compensation;
+	}
+}
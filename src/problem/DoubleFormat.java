@@ -0,0 +1,139 @@
+package problem;
+
+import java.nio.charset.Charset;
+
+/**
+ * Formats doubles as the shortest decimal string that parses back to exactly
+ * the same value, writing the characters directly into a byte array.
+ *
+ * Values are written in plain decimal notation; for the rare values that can't
+ * be written that way within 17 decimal places (very large, very small, or
+ * non-finite values) this falls back to Double.toString.
+ *
+ * @author lackofcheese
+ */
+final class DoubleFormat {
+	/** The maximum number of bytes written for a single value */
+	static final int MAX_LENGTH = 40;
+	/** The maximum number of decimal places tried before falling back */
+	private static final int MAX_DECIMALS = 17;
+	/** The largest integer that a double can represent exactly */
+	private static final double MAX_EXACT = 9007199254740992.0;
+	/** Exact powers of ten */
+	private static final double[] POW10 = new double[MAX_DECIMALS + 1];
+	/** Powers of ten as longs */
+	private static final long[] LONG_POW10 = new long[MAX_DECIMALS + 1];
+	/** The charset used for the fallback */
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	static {
+		POW10[0] = 1;
+		LONG_POW10[0] = 1;
+		for (int i = 1; i <= MAX_DECIMALS; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+			LONG_POW10[i] = LONG_POW10[i - 1] * 10;
+		}
+	}
+
+	private DoubleFormat() {
+	}
+
+	/**
+	 * Writes the shortest round-trip representation of the given value.
+	 *
+	 * @param value
+	 *            the value to write.
+	 * @param buf
+	 *            the array to write into; it must have at least MAX_LENGTH
+	 *            bytes free from pos onwards.
+	 * @param pos
+	 *            the position at which to start writing.
+	 * @return the position after the last byte written.
+	 */
+	static int format(double value, byte[] buf, int pos) {
+		if (value == 0) {
+			buf[pos++] = '0';
+			buf[pos++] = '.';
+			buf[pos++] = '0';
+			return pos;
+		}
+		double abs = Math.abs(value);
+		for (int p = 1; p <= MAX_DECIMALS; p++) {
+			double scaled = abs * POW10[p];
+			if (!(scaled < MAX_EXACT)) {
+				break;
+			}
+			long m = Math.round(scaled);
+			if (m / POW10[p] != abs) {
+				if ((m + 1) / POW10[p] == abs) {
+					m++;
+				} else if (m > 0 && (m - 1) / POW10[p] == abs) {
+					m--;
+				} else {
+					continue;
+				}
+			}
+			if (value < 0) {
+				buf[pos++] = '-';
+			}
+			return writeFixed(m, p, buf, pos);
+		}
+		byte[] fallback = Double.toString(value).getBytes(ASCII);
+		System.arraycopy(fallback, 0, buf, pos, fallback.length);
+		return pos + fallback.length;
+	}
+
+	/**
+	 * Writes m / 10^decimals in plain decimal notation, omitting trailing
+	 * zeros after the first decimal place.
+	 *
+	 * @param m
+	 *            the unscaled value.
+	 * @param decimals
+	 *            the number of decimal places.
+	 * @param buf
+	 *            the array to write into.
+	 * @param pos
+	 *            the position at which to start writing.
+	 * @return the position after the last byte written.
+	 */
+	private static int writeFixed(long m, int decimals, byte[] buf, int pos) {
+		long intPart = m / LONG_POW10[decimals];
+		long fracPart = m % LONG_POW10[decimals];
+		pos = writeLong(intPart, buf, pos);
+		buf[pos++] = '.';
+		int end = pos + decimals;
+		for (int i = end - 1; i >= pos; i--) {
+			buf[i] = (byte) ('0' + fracPart % 10);
+			fracPart /= 10;
+		}
+		while (end > pos + 1 && buf[end - 1] == '0') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Writes a non-negative long in decimal.
+	 *
+	 * @param value
+	 *            the value to write.
+	 * @param buf
+	 *            the array to write into.
+	 * @param pos
+	 *            the position at which to start writing.
+	 * @return the position after the last byte written.
+	 */
+	static int writeLong(long value, byte[] buf, int pos) {
+		int digits = 1;
+		for (long v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		int end = pos + digits;
+		for (int i = end - 1; i >= pos; i--) {
+			buf[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+}
@@ -64,6 +64,42 @@ public class Obstacle {
 		return (Rectangle2D) rect.clone();
 	}
 
+	/**
+	 * Returns the minimum x-value of this obstacle.
+	 * 
+	 * @return the minimum x-value of this obstacle.
+	 */
+	public double getMinX() {
+		return rect.getMinX();
+	}
+
+	/**
+	 * Returns the minimum y-value of this obstacle.
+	 * 
+	 * @return the minimum y-value of this obstacle.
+	 */
+	public double getMinY() {
+		return rect.getMinY();
+	}
+
+	/**
+	 * Returns the maximum x-value of this obstacle.
+	 * 
+	 * @return the maximum x-value of this obstacle.
+	 */
+	public double getMaxX() {
+		return rect.getMaxX();
+	}
+
+	/**
+	 * Returns the maximum y-value of this obstacle.
+	 * 
+	 * @return the maximum y-value of this obstacle.
+	 */
+	public double getMaxY() {
+		return rect.getMaxY();
+	}
+
 	/**
 	 * Returns a String representation of this obstacle.
 	 * 
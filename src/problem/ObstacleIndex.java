@@ -0,0 +1,132 @@
+package problem;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A uniform grid over the workspace that finds the obstacles overlapping a
+ * given area without checking every obstacle.
+ *
+ * Each obstacle is stored in every cell it overlaps. A query visits only the
+ * cells overlapping the query area, and reports each obstacle from exactly one
+ * of those cells - the one containing the bottom-left corner of the overlap
+ * between the obstacle and the query area - so no de-duplication state is
+ * needed and queries can safely run concurrently.
+ *
+ * @author lackofcheese
+ */
+public class ObstacleIndex {
+	/** The maximum number of cells along each side of the grid */
+	public static final int MAX_CELLS_PER_SIDE = 256;
+
+	/** The obstacles */
+	private List<Obstacle> obstacles;
+	/** The area covered by the grid */
+	private double minX, minY, maxX, maxY;
+	/** The number of cells along each side of the grid */
+	private int cellsPerSide;
+	/** The indices of the obstacles overlapping each cell */
+	private int[][] cells;
+
+	/**
+	 * Builds an index over the given obstacles.
+	 *
+	 * @param obstacles
+	 *            the obstacles to index; the list must not be modified
+	 *            afterwards.
+	 */
+	public ObstacleIndex(List<Obstacle> obstacles) {
+		this.obstacles = obstacles;
+		minX = 0;
+		minY = 0;
+		maxX = 1;
+		maxY = 1;
+		for (Obstacle o : obstacles) {
+			minX = Math.min(minX, o.getMinX());
+			minY = Math.min(minY, o.getMinY());
+			maxX = Math.max(maxX, o.getMaxX());
+			maxY = Math.max(maxY, o.getMaxY());
+		}
+		cellsPerSide = (int) Math.ceil(Math.sqrt(obstacles.size()));
+		cellsPerSide = Math.max(1, Math.min(MAX_CELLS_PER_SIDE, cellsPerSide));
+
+		List<List<Integer>> lists = new ArrayList<List<Integer>>();
+		for (int i = 0; i < cellsPerSide * cellsPerSide; i++) {
+			lists.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < obstacles.size(); i++) {
+			Obstacle o = obstacles.get(i);
+			int cx0 = cellX(o.getMinX());
+			int cx1 = cellX(o.getMaxX());
+			int cy0 = cellY(o.getMinY());
+			int cy1 = cellY(o.getMaxY());
+			for (int cy = cy0; cy <= cy1; cy++) {
+				for (int cx = cx0; cx <= cx1; cx++) {
+					lists.get(cy * cellsPerSide + cx).add(i);
+				}
+			}
+		}
+		cells = new int[lists.size()][];
+		for (int i = 0; i < cells.length; i++) {
+			List<Integer> list = lists.get(i);
+			cells[i] = new int[list.size()];
+			for (int j = 0; j < cells[i].length; j++) {
+				cells[i][j] = list.get(j);
+			}
+		}
+	}
+
+	/**
+	 * Returns the column of the cell containing the given x-value, clamped to
+	 * the grid.
+	 */
+	private int cellX(double x) {
+		int cx = (int) Math.floor((x - minX) / (maxX - minX) * cellsPerSide);
+		return Math.max(0, Math.min(cellsPerSide - 1, cx));
+	}
+
+	/**
+	 * Returns the row of the cell containing the given y-value, clamped to
+	 * the grid.
+	 */
+	private int cellY(double y) {
+		int cy = (int) Math.floor((y - minY) / (maxY - minY) * cellsPerSide);
+		return Math.max(0, Math.min(cellsPerSide - 1, cy));
+	}
+
+	/**
+	 * Returns the obstacles that overlap the given area, including those that
+	 * only touch its boundary.
+	 *
+	 * @param area
+	 *            the area to search.
+	 * @return the obstacles overlapping the area, each listed once.
+	 */
+	public List<Obstacle> query(Rectangle2D area) {
+		List<Obstacle> result = new ArrayList<Obstacle>();
+		int cx0 = cellX(area.getMinX());
+		int cx1 = cellX(area.getMaxX());
+		int cy0 = cellY(area.getMinY());
+		int cy1 = cellY(area.getMaxY());
+		for (int cy = cy0; cy <= cy1; cy++) {
+			for (int cx = cx0; cx <= cx1; cx++) {
+				for (int i : cells[cy * cellsPerSide + cx]) {
+					Obstacle o = obstacles.get(i);
+					if (o.getMaxX() < area.getMinX()
+							|| o.getMinX() > area.getMaxX()
+							|| o.getMaxY() < area.getMinY()
+							|| o.getMinY() > area.getMaxY()) {
+						continue;
+					}
+					double refX = Math.max(o.getMinX(), area.getMinX());
+					double refY = Math.max(o.getMinY(), area.getMinY());
+					if (cellX(refX) == cx && cellY(refY) == cy) {
+						result.add(o);
+					}
+				}
+			}
+		}
+		return result;
+	}
+}
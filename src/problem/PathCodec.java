@@ -0,0 +1,168 @@
+package problem;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Constants and helpers shared by PathEncoder and PathDecoder, which implement
+ * a compact binary format for solution paths.
+ *
+ * The format stores a header, followed by a series of blocks, followed by a
+ * trailer. Each block begins with a keyframe, which stores a state exactly as
+ * raw doubles; every other state in the block is stored as the zigzag-varint
+ * encoded difference between its quantised coordinates and those of the
+ * previous state, where coordinates are quantised relative to the keyframe.
+ * Since consecutive states are very close together, most deltas fit into one
+ * or two bytes. The trailer holds the byte offset of every block so that a
+ * decoder reading from a file can seek to any state.
+ *
+ * <pre>
+ * header:  int magic, byte version, int asvCount, double quantum,
+ *          int keyframeInterval
+ * block:   varint stateCount, double[2 * asvCount] keyframe,
+ *          varint[2 * asvCount] delta for each remaining state
+ * end:     varint 0
+ * trailer: long stateCount, double solutionCost, int blockCount,
+ *          long[blockCount] blockOffsets, long trailerOffset
+ * </pre>
+ *
+ * @author lackofcheese
+ */
+public final class PathCodec {
+	/** Magic number identifying a compressed path file ("ASVP") */
+	public static final int MAGIC = 0x41535650;
+	/** The version of the format */
+	public static final int VERSION = 1;
+	/** The default number of states between consecutive keyframes */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 1024;
+	/**
+	 * The default quantum, which is well within the tester's default maximum
+	 * error of 1e-5
+	 */
+	public static final double DEFAULT_QUANTUM = 1e-6;
+	/** The size of the header in bytes */
+	static final int HEADER_SIZE = 4 + 1 + 4 + 8 + 4;
+
+	private PathCodec() {
+	}
+
+	/**
+	 * Returns whether the given stream starts with the compressed path magic
+	 * number, without consuming any of it.
+	 *
+	 * @param input
+	 *            the stream to check, which must support mark and reset.
+	 * @return whether the stream contains a compressed path.
+	 * @throws IOException
+	 *             if the stream cannot be read.
+	 */
+	public static boolean isCompressed(InputStream input) throws IOException {
+		input.mark(4);
+		try {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = input.read();
+				if (b < 0) {
+					return false;
+				}
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} finally {
+			input.reset();
+		}
+	}
+
+	/**
+	 * Returns whether the given file starts with the compressed path magic
+	 * number.
+	 *
+	 * @param filename
+	 *            the path of the file to check.
+	 * @return whether the given file is a compressed path.
+	 * @throws IOException
+	 *             if the file doesn't exist or cannot be read.
+	 */
+	public static boolean isCompressed(String filename) throws IOException {
+		DataInputStream input = new DataInputStream(new FileInputStream(
+				filename));
+		try {
+			return input.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one so that values of small
+	 * magnitude have small encodings.
+	 *
+	 * @param value
+	 *            the signed value.
+	 * @return the zigzag-encoded value.
+	 */
+	static long zigzagEncode(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Inverts zigzagEncode.
+	 *
+	 * @param value
+	 *            the zigzag-encoded value.
+	 * @return the original signed value.
+	 */
+	static long zigzagDecode(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes an unsigned value as a little-endian base-128 varint.
+	 *
+	 * @param out
+	 *            the stream to write to.
+	 * @param value
+	 *            the value to write.
+	 * @return the number of bytes written.
+	 * @throws IOException
+	 *             if the stream cannot be written to.
+	 */
+	static int writeVarLong(OutputStream out, long value) throws IOException {
+		int written = 1;
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+			written++;
+		}
+		out.write((int) value);
+		return written;
+	}
+
+	/**
+	 * Reads an unsigned varint written by writeVarLong.
+	 *
+	 * @param in
+	 *            the input to read from.
+	 * @return the value read.
+	 * @throws IOException
+	 *             if the input ends early or the varint is malformed.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in compressed path");
+	}
+}
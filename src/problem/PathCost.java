@@ -0,0 +1,219 @@
+package problem;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the cost of a solution path in parallel, using compensated
+ * summation so that the result doesn't drift as the path gets longer.
+ *
+ * The path is split at fixed points regardless of the number of threads, so
+ * the result is the same from run to run.
+ *
+ * @author lackofcheese
+ */
+public final class PathCost {
+	/** The number of steps below which a task is not split any further */
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+	/** The pool used for the parallel computations */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private PathCost() {
+	}
+
+	/**
+	 * Returns the total cost of the given path; that is, the sum over every
+	 * step of the distance travelled by all of the ASVs.
+	 *
+	 * @param path
+	 *            the path; this should support fast random access.
+	 * @return the total cost of the path.
+	 */
+	public static double totalCost(List<ASVConfig> path) {
+		if (path.size() < 2) {
+			return 0;
+		}
+		return POOL.invoke(new SumTask(path, 1, path.size())).getValue();
+	}
+
+	/**
+	 * Returns the cumulative cost of the given path; element i of the result
+	 * is the cost of the path from its first state up to state i, so the last
+	 * element is the total cost.
+	 *
+	 * @param path
+	 *            the path; this should support fast random access.
+	 * @return the cumulative cost up to each state of the path.
+	 */
+	public static double[] cumulativeCosts(List<ASVConfig> path) {
+		double[] costs = new double[path.size()];
+		if (costs.length < 2) {
+			return costs;
+		}
+		int chunkCount = (costs.length - 1 + SEQUENTIAL_THRESHOLD - 1)
+				/ SEQUENTIAL_THRESHOLD;
+		CompensatedSum[] chunkTotals = new CompensatedSum[chunkCount];
+		POOL.invoke(new PrefixTask(path, costs, chunkTotals, 0, chunkCount));
+
+		double[] offsets = new double[chunkCount];
+		CompensatedSum offset = new CompensatedSum();
+		for (int i = 0; i < chunkCount; i++) {
+			offsets[i] = offset.getValue();
+			offset.add(chunkTotals[i]);
+		}
+		POOL.invoke(new OffsetTask(costs, offsets, 1, chunkCount));
+		return costs;
+	}
+
+	/**
+	 * Returns the index of the last state whose cumulative cost does not
+	 * exceed the given cost, or 0 if there is no such state.
+	 *
+	 * @param cumulativeCosts
+	 *            the cumulative costs, as returned by cumulativeCosts.
+	 * @param cost
+	 *            the cost to look up.
+	 * @return the index of the last state reached within the given cost.
+	 */
+	public static int indexAtCost(double[] cumulativeCosts, double cost) {
+		int index = Arrays.binarySearch(cumulativeCosts, cost);
+		if (index >= 0) {
+			while (index + 1 < cumulativeCosts.length
+					&& cumulativeCosts[index + 1] == cost) {
+				index++;
+			}
+			return index;
+		}
+		return Math.max(-index - 2, 0);
+	}
+
+	/**
+	 * Returns the cost of the step between the two given states.
+	 *
+	 * @param path
+	 *            the path.
+	 * @param index
+	 *            the index of the state at the end of the step.
+	 * @return the cost of the step.
+	 */
+	private static double stepCost(List<ASVConfig> path, int index) {
+		return path.get(index - 1).totalDistance(path.get(index));
+	}
+
+	/**
+	 * Sums the costs of the steps ending at states [start, end).
+	 */
+	private static class SumTask extends RecursiveTask<CompensatedSum> {
+		private static final long serialVersionUID = 1L;
+
+		private List<ASVConfig> path;
+		private int start;
+		private int end;
+
+		public SumTask(List<ASVConfig> path, int start, int end) {
+			this.path = path;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected CompensatedSum compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				CompensatedSum sum = new CompensatedSum();
+				for (int i = start; i < end; i++) {
+					sum.add(stepCost(path, i));
+				}
+				return sum;
+			}
+			int mid = start + (end - start) / 2;
+			SumTask left = new SumTask(path, start, mid);
+			left.fork();
+			CompensatedSum sum = new SumTask(path, mid, end).compute();
+			CompensatedSum total = left.join();
+			total.add(sum);
+			return total;
+		}
+	}
+
+	/**
+	 * Fills in the cumulative costs within each of the chunks [start, end),
+	 * relative to the start of the chunk, and records each chunk's total.
+	 */
+	private static class PrefixTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private List<ASVConfig> path;
+		private double[] costs;
+		private CompensatedSum[] chunkTotals;
+		private int start;
+		private int end;
+
+		public PrefixTask(List<ASVConfig> path, double[] costs,
+				CompensatedSum[] chunkTotals, int start, int end) {
+			this.path = path;
+			this.costs = costs;
+			this.chunkTotals = chunkTotals;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start == 1) {
+				int first = start * SEQUENTIAL_THRESHOLD + 1;
+				int last = Math.min(first + SEQUENTIAL_THRESHOLD, costs.length);
+				CompensatedSum sum = new CompensatedSum();
+				for (int i = first; i < last; i++) {
+					sum.add(stepCost(path, i));
+					costs[i] = sum.getValue();
+				}
+				chunkTotals[start] = sum;
+				return;
+			}
+			int mid = start + (end - start) / 2;
+			invokeAll(new PrefixTask(path, costs, chunkTotals, start, mid),
+					new PrefixTask(path, costs, chunkTotals, mid, end));
+		}
+	}
+
+	/**
+	 * Adds each chunk's offset to the cumulative costs within the chunks
+	 * [start, end).
+	 */
+	private static class OffsetTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private double[] costs;
+		private double[] offsets;
+		private int start;
+		private int end;
+
+		public OffsetTask(double[] costs, double[] offsets, int start, int end) {
+			this.costs = costs;
+			this.offsets = offsets;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end <= start) {
+				return;
+			}
+			if (end - start == 1) {
+				int first = start * SEQUENTIAL_THRESHOLD + 1;
+				int last = Math.min(first + SEQUENTIAL_THRESHOLD, costs.length);
+				for (int i = first; i < last; i++) {
+					costs[i] += offsets[start];
+				}
+				return;
+			}
+			int mid = start + (end - start) / 2;
+			invokeAll(new OffsetTask(costs, offsets, start, mid),
+					new OffsetTask(costs, offsets, mid, end));
+		}
+	}
+}
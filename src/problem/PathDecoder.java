@@ -0,0 +1,344 @@
+package problem;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a solution path in the compressed format described in PathCodec.
+ * States are decoded one at a time as they are requested; a decoder opened on
+ * a file can also seek directly to any state via the keyframe index stored in
+ * the trailer.
+ *
+ * @author lackofcheese
+ */
+public class PathDecoder implements Closeable {
+	/** The size of the read buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The file being read, or null if reading from a plain stream */
+	private RandomAccessFile file;
+	/** The current input */
+	private DataInputStream input;
+	/** The number of ASVs in each state */
+	private int asvCount;
+	/** The quantum used for the deltas */
+	private double quantum;
+	/** The number of states in each block */
+	private int keyframeInterval;
+
+	/** The number of states remaining in the current block */
+	private int blockRemaining = 0;
+	/** Whether the current block's keyframe is yet to be read */
+	private boolean atKeyframe = false;
+	/** Whether the end of the path has been reached */
+	private boolean finished = false;
+	/** The keyframe coordinates of the current block */
+	private double[] keyframe;
+	/** The quantised coordinates of the previous state */
+	private long[] previous;
+	/** The index of the next state to be decoded */
+	private int nextIndex = 0;
+
+	/** The total number of states, or -1 if not yet known */
+	private long stateCount = -1;
+	/** The solution cost stored in the trailer */
+	private double solutionCost = Double.NaN;
+	/** The byte offset of each block, or null if not known */
+	private long[] blockOffsets;
+
+	/**
+	 * Constructs a decoder that reads sequentially from the given stream.
+	 * The state count and solution cost only become available once the whole
+	 * path has been read, and seeking is not supported.
+	 *
+	 * @param input
+	 *            the stream to read from; it is closed along with this decoder.
+	 * @throws IOException
+	 *             if the header is missing or invalid.
+	 */
+	public PathDecoder(InputStream input) throws IOException {
+		this.input = new DataInputStream(new BufferedInputStream(input,
+				BUFFER_SIZE));
+		readHeader();
+	}
+
+	/**
+	 * Constructs a decoder that reads from the given file, with support for
+	 * seeking.
+	 *
+	 * @param filename
+	 *            the path of the file to read.
+	 * @throws IOException
+	 *             if the file doesn't exist or is not a valid compressed path.
+	 */
+	public PathDecoder(String filename) throws IOException {
+		file = new RandomAccessFile(filename, "r");
+		try {
+			long length = file.length();
+			if (length < PathCodec.HEADER_SIZE + 8) {
+				throw new IOException("Compressed path file is truncated");
+			}
+			file.seek(length - 8);
+			long trailerOffset = file.readLong();
+			if (trailerOffset < PathCodec.HEADER_SIZE
+					|| trailerOffset > length - 8) {
+				throw new IOException("Invalid trailer offset "
+						+ trailerOffset);
+			}
+			file.seek(trailerOffset);
+			stateCount = file.readLong();
+			solutionCost = file.readDouble();
+			int blockCount = file.readInt();
+			if (blockCount < 0
+					|| trailerOffset + 20 + 8L * blockCount > length - 8) {
+				throw new IOException("Invalid block count " + blockCount);
+			}
+			blockOffsets = new long[blockCount];
+			for (int i = 0; i < blockCount; i++) {
+				blockOffsets[i] = file.readLong();
+			}
+			openAt(0);
+			readHeader();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads and validates the header.
+	 *
+	 * @throws IOException
+	 *             if the header is missing or invalid.
+	 */
+	private void readHeader() throws IOException {
+		if (input.readInt() != PathCodec.MAGIC) {
+			throw new IOException("Not a compressed path file");
+		}
+		int version = input.readUnsignedByte();
+		if (version != PathCodec.VERSION) {
+			throw new IOException("Unsupported compressed path version "
+					+ version);
+		}
+		asvCount = input.readInt();
+		quantum = input.readDouble();
+		keyframeInterval = input.readInt();
+		if (asvCount < 1 || !(quantum > 0) || keyframeInterval < 1) {
+			throw new IOException("Invalid compressed path header");
+		}
+		keyframe = new double[asvCount * 2];
+		previous = new long[asvCount * 2];
+	}
+
+	/**
+	 * Replaces the current input with one that starts at the given offset in
+	 * the file.
+	 *
+	 * @param offset
+	 *            the byte offset to read from.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	private void openAt(long offset) throws IOException {
+		FileChannel channel = file.getChannel();
+		channel.position(offset);
+		input = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(channel), BUFFER_SIZE));
+	}
+
+	/**
+	 * Returns whether there is another state to decode.
+	 *
+	 * @return whether there is another state to decode.
+	 * @throws IOException
+	 *             if the input cannot be read.
+	 */
+	public boolean hasNext() throws IOException {
+		if (blockRemaining > 0) {
+			return true;
+		}
+		if (finished) {
+			return false;
+		}
+		long n = PathCodec.readVarLong(input);
+		if (n == 0) {
+			finished = true;
+			if (file == null) {
+				stateCount = input.readLong();
+				solutionCost = input.readDouble();
+			}
+			return false;
+		}
+		if (n > keyframeInterval) {
+			throw new IOException("Invalid block size " + n);
+		}
+		blockRemaining = (int) n;
+		atKeyframe = true;
+		return true;
+	}
+
+	/**
+	 * Decodes the next state into the given array as x- and y-coordinates of
+	 * each ASV, without allocating.
+	 *
+	 * @param coords
+	 *            an array of at least 2n values, where n is the number of
+	 *            ASVs.
+	 * @return false if there are no more states, and true otherwise.
+	 * @throws IOException
+	 *             if the input cannot be read.
+	 */
+	public boolean next(double[] coords) throws IOException {
+		if (!hasNext()) {
+			return false;
+		}
+		int n = asvCount * 2;
+		if (atKeyframe) {
+			for (int i = 0; i < n; i++) {
+				keyframe[i] = input.readDouble();
+				previous[i] = 0;
+				coords[i] = keyframe[i];
+			}
+			atKeyframe = false;
+		} else {
+			for (int i = 0; i < n; i++) {
+				previous[i] += PathCodec.zigzagDecode(PathCodec
+						.readVarLong(input));
+				coords[i] = keyframe[i] + previous[i] * quantum;
+			}
+		}
+		blockRemaining--;
+		nextIndex++;
+		return true;
+	}
+
+	/**
+	 * Decodes and returns the next state.
+	 *
+	 * @return the next state.
+	 * @throws IOException
+	 *             if the input cannot be read.
+	 * @throws EOFException
+	 *             if there are no more states.
+	 */
+	public ASVConfig next() throws IOException {
+		double[] coords = new double[asvCount * 2];
+		if (!next(coords)) {
+			throw new EOFException("No more states in compressed path");
+		}
+		return new ASVConfig(coords);
+	}
+
+	/**
+	 * Positions this decoder so that the next state decoded is the state with
+	 * the given index. This jumps to the preceding keyframe and decodes
+	 * forward, so it costs at most one block's worth of decoding.
+	 *
+	 * @param index
+	 *            the index of the state to seek to.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public void seek(int index) throws IOException {
+		if (file == null) {
+			throw new IOException("Seeking requires a file-backed decoder");
+		}
+		if (index < 0 || index > stateCount) {
+			throw new IndexOutOfBoundsException("State " + index + " of "
+					+ stateCount);
+		}
+		int block = index / keyframeInterval;
+		if (block >= blockOffsets.length) {
+			blockRemaining = 0;
+			finished = true;
+			nextIndex = index;
+			return;
+		}
+		if (index < nextIndex || index >= nextIndex + blockRemaining) {
+			openAt(blockOffsets[block]);
+			blockRemaining = 0;
+			finished = false;
+			nextIndex = block * keyframeInterval;
+		}
+		double[] skipped = new double[asvCount * 2];
+		while (nextIndex < index) {
+			next(skipped);
+		}
+	}
+
+	/**
+	 * Returns the number of ASVs in each state.
+	 *
+	 * @return the number of ASVs in each state.
+	 */
+	public int getASVCount() {
+		return asvCount;
+	}
+
+	/**
+	 * Returns the quantum used for the deltas.
+	 *
+	 * @return the quantum used for the deltas.
+	 */
+	public double getQuantum() {
+		return quantum;
+	}
+
+	/**
+	 * Returns the number of states between consecutive keyframes.
+	 *
+	 * @return the number of states between consecutive keyframes.
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * Returns the index of the next state to be decoded.
+	 *
+	 * @return the index of the next state to be decoded.
+	 */
+	public int getNextIndex() {
+		return nextIndex;
+	}
+
+	/**
+	 * Returns the total number of states, or -1 if this is not yet known.
+	 *
+	 * @return the total number of states, or -1 if this is not yet known.
+	 */
+	public long getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns the solution cost stored in the trailer, or NaN if this is not
+	 * yet known.
+	 *
+	 * @return the solution cost stored in the trailer.
+	 */
+	public double getSolutionCost() {
+		return solutionCost;
+	}
+
+	/**
+	 * Closes the underlying input.
+	 *
+	 * @throws IOException
+	 *             if the input cannot be closed.
+	 */
+	public void close() throws IOException {
+		if (file != null) {
+			file.close();
+		} else {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package problem;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Expands a sequence of coarse waypoints into primitive steps, by linearly
+ * interpolating each segment in as few equal steps as keep every ASV within
+ * the maximum step distance.
+ *
+ * Waypoints are pulled from the underlying iterator only as they are needed,
+ * and only the current segment is held in memory, so arbitrarily long
+ * solutions can be produced in constant memory.
+ *
+ * @author lackofcheese
+ */
+public class PathDensifier implements Iterator<ASVConfig> {
+	/** The waypoints being expanded */
+	private Iterator<ASVConfig> waypoints;
+	/** The maximum distance any ASV may travel in one step */
+	private double maxStep;
+
+	/** The coordinates of the start of the current segment */
+	private double[] start;
+	/** The coordinates of the end of the current segment */
+	private double[] end;
+	/** The coordinates of the previous state yielded */
+	private double[] previous;
+	/** The number of steps in the current segment */
+	private int segmentSteps = 0;
+	/** The number of steps of the current segment yielded so far */
+	private int segmentStep = 0;
+	/** Whether the first waypoint is yet to be yielded */
+	private boolean atStart = true;
+
+	/** The number of states yielded so far */
+	private long stateCount = 0;
+	/** The total cost of the steps yielded so far */
+	private CompensatedSum cost = new CompensatedSum();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param waypoints
+	 *            the waypoints to expand; these must all have the same number
+	 *            of ASVs.
+	 * @param maxStep
+	 *            the maximum distance any ASV may travel in one step, e.g.
+	 *            tester.Tester.MAX_STEP.
+	 */
+	public PathDensifier(Iterator<ASVConfig> waypoints, double maxStep) {
+		if (!(maxStep > 0)) {
+			throw new IllegalArgumentException("Step size must be positive: "
+					+ maxStep);
+		}
+		this.waypoints = waypoints;
+		this.maxStep = maxStep;
+	}
+
+	/**
+	 * Copies the coordinates of the given state into the given array,
+	 * allocating it if necessary.
+	 *
+	 * @param cfg
+	 *            the state to copy.
+	 * @param coords
+	 *            the array to copy into, or null.
+	 * @return the array holding the coordinates.
+	 */
+	private static double[] getCoords(ASVConfig cfg, double[] coords) {
+		if (coords == null || coords.length != cfg.getASVCount() * 2) {
+			coords = new double[cfg.getASVCount() * 2];
+		}
+		for (int i = 0; i < cfg.getASVCount(); i++) {
+			coords[i * 2] = cfg.getX(i);
+			coords[i * 2 + 1] = cfg.getY(i);
+		}
+		return coords;
+	}
+
+	/**
+	 * Advances to the next segment that requires at least one step.
+	 *
+	 * @return false if there are no more waypoints, and true otherwise.
+	 */
+	private boolean nextSegment() {
+		while (waypoints.hasNext()) {
+			ASVConfig waypoint = waypoints.next();
+			if (start == null) {
+				start = getCoords(waypoint, null);
+				end = new double[start.length];
+				previous = new double[start.length];
+				return true;
+			}
+			if (waypoint.getASVCount() * 2 != start.length) {
+				throw new IllegalArgumentException(String.format(
+						"Expected %d ASVs but got %d", start.length / 2,
+						waypoint.getASVCount()));
+			}
+			if (segmentSteps > 0) {
+				double[] temp = start;
+				start = end;
+				end = temp;
+			}
+			getCoords(waypoint, end);
+			double maxDistance = 0;
+			for (int i = 0; i < start.length; i += 2) {
+				double dx = end[i] - start[i];
+				double dy = end[i + 1] - start[i + 1];
+				maxDistance = Math.max(maxDistance,
+						Math.sqrt(dx * dx + dy * dy));
+			}
+			segmentSteps = (int) Math.ceil(maxDistance / maxStep);
+			segmentStep = 0;
+			if (segmentSteps > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether there is another state to yield.
+	 *
+	 * @return whether there is another state to yield.
+	 */
+	public boolean hasNext() {
+		if (atStart) {
+			return start != null || nextSegment();
+		}
+		return segmentStep < segmentSteps || nextSegment();
+	}
+
+	/**
+	 * Writes the coordinates of the next state into the given array, without
+	 * allocating.
+	 *
+	 * @param coords
+	 *            an array of at least 2n values, where n is the number of
+	 *            ASVs.
+	 * @return false if there are no more states, and true otherwise.
+	 */
+	public boolean next(double[] coords) {
+		if (!hasNext()) {
+			return false;
+		}
+		int n = start.length;
+		if (atStart) {
+			System.arraycopy(start, 0, coords, 0, n);
+			atStart = false;
+		} else {
+			segmentStep++;
+			if (segmentStep == segmentSteps) {
+				System.arraycopy(end, 0, coords, 0, n);
+			} else {
+				double t = (double) segmentStep / segmentSteps;
+				for (int i = 0; i < n; i++) {
+					coords[i] = start[i] + (end[i] - start[i]) * t;
+				}
+			}
+			double stepCost = 0;
+			for (int i = 0; i < n; i += 2) {
+				double dx = coords[i] - previous[i];
+				double dy = coords[i + 1] - previous[i + 1];
+				stepCost += Math.sqrt(dx * dx + dy * dy);
+			}
+			cost.add(stepCost);
+		}
+		System.arraycopy(coords, 0, previous, 0, n);
+		stateCount++;
+		return true;
+	}
+
+	/**
+	 * Returns the next state.
+	 *
+	 * @return the next state.
+	 */
+	public ASVConfig next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		double[] coords = new double[start.length];
+		next(coords);
+		return new ASVConfig(coords);
+	}
+
+	/**
+	 * Not supported.
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Writes all of the remaining states to the given writer.
+	 *
+	 * @param output
+	 *            the writer to write to.
+	 * @return the total cost of all the steps yielded.
+	 * @throws IOException
+	 *             if the writer cannot be written to.
+	 */
+	public double writeTo(SolutionWriter output) throws IOException {
+		if (hasNext()) {
+			double[] coords = new double[start.length];
+			while (next(coords)) {
+				output.write(coords);
+			}
+		}
+		return cost.getValue();
+	}
+
+	/**
+	 * Returns the number of states yielded so far.
+	 *
+	 * @return the number of states yielded so far.
+	 */
+	public long getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns the total cost of the steps yielded so far; once every state
+	 * has been yielded this is the cost of the whole solution. Like
+	 * ProblemSpec.calculateTotalCost, this uses compensated summation.
+	 *
+	 * @return the total cost of the steps yielded so far.
+	 */
+	public double getCost() {
+		return cost.getValue();
+	}
+}
@@ -0,0 +1,243 @@
+package problem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a solution path in the compressed format described in PathCodec.
+ * States are appended one at a time, so only a single block is ever held in
+ * memory.
+ *
+ * Each coordinate is reconstructed to within half a quantum of its original
+ * value, so the quantum should be no coarser than the maximum error allowed
+ * by the tester.
+ *
+ * @author lackofcheese
+ */
+public class PathEncoder implements Closeable {
+	/** The underlying output */
+	private DataOutputStream output;
+	/** The number of ASVs in each state */
+	private int asvCount;
+	/** The quantum used for the deltas */
+	private double quantum;
+	/** The number of states in each block */
+	private int keyframeInterval;
+
+	/** The current block, which is buffered until it is full */
+	private ByteArrayOutputStream block = new ByteArrayOutputStream();
+	/** The number of states in the current block */
+	private int blockStates = 0;
+	/** The keyframe coordinates of the current block */
+	private double[] keyframe;
+	/** The quantised coordinates of the previous state */
+	private long[] previous;
+
+	/** The number of bytes written to the output so far */
+	private long bytesWritten = 0;
+	/** The byte offset of each block */
+	private List<Long> blockOffsets = new ArrayList<Long>();
+	/** The total number of states written */
+	private long stateCount = 0;
+	/** The last state written, for the cost calculation */
+	private ASVConfig lastState;
+	/** The total cost of the states written */
+	private CompensatedSum solutionCost = new CompensatedSum();
+	/** Whether a state failed to be written, so the path is incomplete */
+	private boolean failed = false;
+
+	/**
+	 * Constructor. Writes the header immediately.
+	 *
+	 * @param output
+	 *            the stream to write to; it is closed along with this encoder.
+	 * @param asvCount
+	 *            the number of ASVs in each state.
+	 * @param quantum
+	 *            the quantum used for the deltas.
+	 * @param keyframeInterval
+	 *            the number of states between consecutive keyframes.
+	 * @throws IOException
+	 *             if the header cannot be written.
+	 */
+	public PathEncoder(OutputStream output, int asvCount, double quantum,
+			int keyframeInterval) throws IOException {
+		if (!(quantum > 0)) {
+			throw new IllegalArgumentException("Quantum must be positive: "
+					+ quantum);
+		}
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException(
+					"Keyframe interval must be positive: " + keyframeInterval);
+		}
+		this.output = new DataOutputStream(output);
+		this.asvCount = asvCount;
+		this.quantum = quantum;
+		this.keyframeInterval = keyframeInterval;
+		keyframe = new double[asvCount * 2];
+		previous = new long[asvCount * 2];
+
+		this.output.writeInt(PathCodec.MAGIC);
+		this.output.writeByte(PathCodec.VERSION);
+		this.output.writeInt(asvCount);
+		this.output.writeDouble(quantum);
+		this.output.writeInt(keyframeInterval);
+		bytesWritten += PathCodec.HEADER_SIZE;
+	}
+
+	/**
+	 * Appends a state to the path. If this fails, the path is incomplete, so
+	 * no trailer is written when the encoder is closed and the file will not
+	 * decode.
+	 *
+	 * @param cfg
+	 *            the state to append.
+	 * @throws IOException
+	 *             if the output cannot be written to.
+	 */
+	public void write(ASVConfig cfg) throws IOException {
+		boolean succeeded = false;
+		try {
+			writeState(cfg);
+			succeeded = true;
+		} finally {
+			if (!succeeded) {
+				failed = true;
+			}
+		}
+	}
+
+	/**
+	 * Appends a state to the current block, writing the block once it is
+	 * full.
+	 *
+	 * @param cfg
+	 *            the state to append.
+	 * @throws IOException
+	 *             if the output cannot be written to.
+	 */
+	private void writeState(ASVConfig cfg) throws IOException {
+		if (cfg.getASVCount() != asvCount) {
+			throw new IllegalArgumentException(String.format(
+					"Expected %d ASVs but got %d", asvCount, cfg.getASVCount()));
+		}
+		if (blockStates == 0) {
+			DataOutputStream out = new DataOutputStream(block);
+			for (int i = 0; i < asvCount; i++) {
+				keyframe[i * 2] = cfg.getPosition(i).getX();
+				keyframe[i * 2 + 1] = cfg.getPosition(i).getY();
+				out.writeDouble(keyframe[i * 2]);
+				out.writeDouble(keyframe[i * 2 + 1]);
+				previous[i * 2] = 0;
+				previous[i * 2 + 1] = 0;
+			}
+		} else {
+			for (int i = 0; i < asvCount; i++) {
+				writeDelta(i * 2, cfg.getPosition(i).getX());
+				writeDelta(i * 2 + 1, cfg.getPosition(i).getY());
+			}
+		}
+		blockStates++;
+		stateCount++;
+		if (lastState != null) {
+			solutionCost.add(lastState.totalDistance(cfg));
+		}
+		lastState = cfg;
+		if (blockStates == keyframeInterval) {
+			flushBlock();
+		}
+	}
+
+	/**
+	 * Writes the delta for a single coordinate to the current block.
+	 *
+	 * @param index
+	 *            the index of the coordinate.
+	 * @param value
+	 *            the value of the coordinate.
+	 * @throws IOException
+	 *             if the block cannot be written to.
+	 */
+	private void writeDelta(int index, double value) throws IOException {
+		long q = Math.round((value - keyframe[index]) / quantum);
+		PathCodec.writeVarLong(block, PathCodec.zigzagEncode(q
+				- previous[index]));
+		previous[index] = q;
+	}
+
+	/**
+	 * Writes the current block to the output.
+	 *
+	 * @throws IOException
+	 *             if the output cannot be written to.
+	 */
+	private void flushBlock() throws IOException {
+		if (blockStates == 0) {
+			return;
+		}
+		blockOffsets.add(bytesWritten);
+		bytesWritten += PathCodec.writeVarLong(output, blockStates);
+		block.writeTo(output);
+		bytesWritten += block.size();
+		block.reset();
+		blockStates = 0;
+	}
+
+	/**
+	 * Overrides the solution cost stored in the trailer, which by default is
+	 * the total distance over the states written. Call this after the last
+	 * state has been written.
+	 *
+	 * @param solutionCost
+	 *            the solution cost to store.
+	 */
+	public void setSolutionCost(double solutionCost) {
+		this.solutionCost.set(solutionCost);
+	}
+
+	/**
+	 * Returns the number of states written so far.
+	 *
+	 * @return the number of states written so far.
+	 */
+	public long getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Writes the final block and the trailer, and closes the output. If a
+	 * state failed to be written, the output is closed without them, so that
+	 * the incomplete path is rejected rather than read as a shorter one.
+	 *
+	 * @throws IOException
+	 *             if the output cannot be written to.
+	 */
+	public void close() throws IOException {
+		if (output == null) {
+			return;
+		}
+		try {
+			if (failed) {
+				return;
+			}
+			flushBlock();
+			bytesWritten += PathCodec.writeVarLong(output, 0);
+			long trailerOffset = bytesWritten;
+			output.writeLong(stateCount);
+			output.writeDouble(solutionCost.getValue());
+			output.writeInt(blockOffsets.size());
+			for (long offset : blockOffsets) {
+				output.writeLong(offset);
+			}
+			output.writeLong(trailerOffset);
+		} finally {
+			output.close();
+			output = null;
+		}
+	}
+}
@@ -1,10 +1,15 @@
 package problem;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -35,12 +40,42 @@ public class ProblemSpec {
 	private ASVConfig goalState;
 	/** The obstacles */
 	private List<Obstacle> obstacles;
+	/** A spatial index over the obstacles */
+	private ObstacleIndex obstacleIndex;
 
 	/** The path taken in the solution */
 	private List<ASVConfig> path;
 	/** The cost of the solution */
 	private double solutionCost = 0;
 
+	/**
+	 * Constructs an empty problem spec, with no problem or solution loaded.
+	 */
+	public ProblemSpec() {
+	}
+
+	/**
+	 * Constructs a copy of the given problem spec. The copy shares the
+	 * configurations, obstacles and path of the original, which is safe since
+	 * loading a problem or solution replaces these rather than modifying them;
+	 * only appendToPath modifies the path in place, so it should not be used
+	 * on a copy until the copy's path has been replaced.
+	 * 
+	 * @param other
+	 *            the problem spec to copy.
+	 */
+	public ProblemSpec(ProblemSpec other) {
+		problemLoaded = other.problemLoaded;
+		solutionLoaded = other.solutionLoaded;
+		asvCount = other.asvCount;
+		initialState = other.initialState;
+		goalState = other.goalState;
+		obstacles = other.obstacles;
+		obstacleIndex = other.obstacleIndex;
+		path = other.path;
+		solutionCost = other.solutionCost;
+	}
+
 	/**
 	 * Loads a problem from a problem text file.
 	 * 
@@ -51,9 +86,28 @@ public class ProblemSpec {
 	 *             specifications.
 	 */
 	public void loadProblem(String filename) throws IOException {
+		InputStream input = new FileInputStream(filename);
+		try {
+			loadProblem(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Loads a problem from a stream in the problem text file format. The
+	 * stream is not closed.
+	 * 
+	 * @param stream
+	 *            the stream to read from.
+	 * @throws IOException
+	 *             if the stream cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+	public void loadProblem(InputStream stream) throws IOException {
 		problemLoaded = false;
 		solutionLoaded = false;
-		BufferedReader input = new BufferedReader(new FileReader(filename));
+		BufferedReader input = new BufferedReader(new InputStreamReader(stream));
 		String line;
 		int lineNo = 0;
 		Scanner s;
@@ -84,6 +138,7 @@ public class ProblemSpec {
 				lineNo++;
 				obstacles.add(new Obstacle(line));
 			}
+			obstacleIndex = new ObstacleIndex(obstacles);
 
 			problemLoaded = true;
 		} catch (InputMismatchException e) {
@@ -96,8 +151,6 @@ public class ProblemSpec {
 		} catch (NullPointerException e) {
 			throw new IOException(String.format(
 					"Line %d expected, but file ended.", lineNo));
-		} finally {
-			input.close();
 		}
 	}
 
@@ -114,8 +167,53 @@ public class ProblemSpec {
 		if (!problemLoaded) {
 			return;
 		}
+		if (PathCodec.isCompressed(filename)) {
+			loadCompressedSolution(filename);
+			return;
+		}
+		InputStream input = new FileInputStream(filename);
+		try {
+			loadTextSolution(new BufferedReader(new InputStreamReader(input)));
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Loads a solution from a stream in either the solution text file format
+	 * or the compressed format. The stream is not closed.
+	 * 
+	 * @param stream
+	 *            the stream to read from.
+	 * @throws IOException
+	 *             if the stream cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+	public void loadSolution(InputStream stream) throws IOException {
+		if (!problemLoaded) {
+			return;
+		}
+		if (!stream.markSupported()) {
+			stream = new BufferedInputStream(stream);
+		}
+		if (PathCodec.isCompressed(stream)) {
+			readCompressedSolution(new PathDecoder(stream));
+		} else {
+			loadTextSolution(new BufferedReader(new InputStreamReader(stream)));
+		}
+	}
+
+	/**
+	 * Loads a solution in the solution text file format.
+	 * 
+	 * @param input
+	 *            the reader to read from.
+	 * @throws IOException
+	 *             if the input cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+	private void loadTextSolution(BufferedReader input) throws IOException {
 		solutionLoaded = false;
-		BufferedReader input = new BufferedReader(new FileReader(filename));
 		String line;
 		int lineNo = 0;
 		Scanner s;
@@ -144,8 +242,6 @@ public class ProblemSpec {
 		} catch (NullPointerException e) {
 			throw new IOException(String.format(
 					"Line %d expected, but file ended.", lineNo));
-		} finally {
-			input.close();
 		}
 	}
 
@@ -162,13 +258,104 @@ public class ProblemSpec {
 		if (!problemLoaded || !solutionLoaded) {
 			return;
 		}
-		String ls = System.getProperty("line.separator");
-		FileWriter output = new FileWriter(filename);
-		output.write(String.format("%d %f%s", path.size() - 1, solutionCost, ls));
-		for (ASVConfig cfg : path) {
-			output.write(cfg + ls);
+		SolutionWriter output = new SolutionWriter(filename, asvCount);
+		try {
+			for (ASVConfig cfg : path) {
+				output.write(cfg);
+			}
+			output.setSolutionCost(solutionCost);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Loads a solution from a file in the compressed format written by
+	 * saveCompressedSolution.
+	 * 
+	 * @param filename
+	 *            the path of the file to load.
+	 * @throws IOException
+	 *             if the file doesn't exist, isn't a valid compressed path, or
+	 *             doesn't match the number of ASVs in the problem.
+	 */
+	public void loadCompressedSolution(String filename) throws IOException {
+		if (!problemLoaded) {
+			return;
+		}
+		PathDecoder input = new PathDecoder(filename);
+		try {
+			readCompressedSolution(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads a solution from the given decoder.
+	 * 
+	 * @param input
+	 *            the decoder to read from.
+	 * @throws IOException
+	 *             if the input is invalid or doesn't match the number of ASVs
+	 *             in the problem.
+	 */
+	private void readCompressedSolution(PathDecoder input) throws IOException {
+		solutionLoaded = false;
+		if (input.getASVCount() != asvCount) {
+			throw new IOException(String.format(
+					"Expected %d ASVs but the file has %d", asvCount,
+					input.getASVCount()));
+		}
+		long stateCount = input.getStateCount();
+		path = stateCount >= 0 ? new ArrayList<ASVConfig>((int) stateCount)
+				: new ArrayList<ASVConfig>();
+		while (input.hasNext()) {
+			path.add(input.next());
+		}
+		solutionCost = input.getSolutionCost();
+		solutionLoaded = true;
+	}
+
+	/**
+	 * Saves the current solution in a compressed binary format. Coordinates
+	 * are stored to within half a quantum of their true values, so the quantum
+	 * must be no coarser than the maximum error allowed by the tester.
+	 * 
+	 * @param filename
+	 *            the path of the file to save to.
+	 * @param quantum
+	 *            the resolution at which the steps are stored; see
+	 *            PathCodec.DEFAULT_QUANTUM.
+	 * @param maxError
+	 *            the maximum error allowed by the tester the solution is
+	 *            meant for.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 * @throws IllegalArgumentException
+	 *             if the quantum is coarser than the maximum error.
+	 */
+	public void saveCompressedSolution(String filename, double quantum,
+			double maxError) throws IOException {
+		if (!(quantum <= maxError)) {
+			throw new IllegalArgumentException(String.format(
+					"Quantum %s is coarser than the maximum error %s",
+					quantum, maxError));
+		}
+		if (!problemLoaded || !solutionLoaded) {
+			return;
+		}
+		PathEncoder output = new PathEncoder(new BufferedOutputStream(
+				new FileOutputStream(filename)), asvCount, quantum,
+				PathCodec.DEFAULT_KEYFRAME_INTERVAL);
+		try {
+			for (ASVConfig cfg : path) {
+				output.write(cfg);
+			}
+			output.setSolutionCost(solutionCost);
+		} finally {
+			output.close();
 		}
-		output.close();
 	}
 
 	/**
@@ -187,19 +374,23 @@ public class ProblemSpec {
 	}
 
 	/**
-	 * Returns the true total cost of the currently loaded solution.
+	 * Returns the true total cost of the currently loaded solution. This is
+	 * computed in parallel with compensated summation; see PathCost.
 	 * 
 	 * @return the true total cost of the currently loaded solution.
 	 */
 	public double calculateTotalCost() {
-		double cost = 0;
-		ASVConfig c0 = path.get(0);
-		for (int i = 1; i < path.size(); i++) {
-			ASVConfig c1 = path.get(i);
-			cost += c0.totalDistance(c1);
-			c0 = c1;
-		}
-		return cost;
+		return PathCost.totalCost(path);
+	}
+
+	/**
+	 * Returns the cumulative cost up to each state of the currently loaded
+	 * solution, so that the cost up to any state can be looked up directly.
+	 * 
+	 * @return the cumulative cost up to each state of the solution.
+	 */
+	public double[] calculateCumulativeCosts() {
+		return PathCost.cumulativeCosts(path);
 	}
 
 	/**
@@ -238,6 +429,44 @@ public class ProblemSpec {
 		return new ArrayList<Obstacle>(obstacles);
 	}
 
+	/**
+	 * Returns a read-only view of the list of obstacles, without copying it.
+	 * 
+	 * @return a read-only view of the list of obstacles.
+	 */
+	public List<Obstacle> getObstaclesView() {
+		return Collections.unmodifiableList(obstacles);
+	}
+
+	/**
+	 * Returns a spatial index over the obstacles.
+	 * 
+	 * @return a spatial index over the obstacles.
+	 */
+	public ObstacleIndex getObstacleIndex() {
+		return obstacleIndex;
+	}
+
+	/**
+	 * Returns the number of obstacles.
+	 * 
+	 * @return the number of obstacles.
+	 */
+	public int getObstacleCount() {
+		return obstacles.size();
+	}
+
+	/**
+	 * Returns the obstacle with the given index.
+	 * 
+	 * @param index
+	 *            the index of the obstacle.
+	 * @return the obstacle with the given index.
+	 */
+	public Obstacle getObstacle(int index) {
+		return obstacles.get(index);
+	}
+
 	/**
 	 * Sets the path.
 	 * 
@@ -253,6 +482,37 @@ public class ProblemSpec {
 		solutionLoaded = true;
 	}
 
+	/**
+	 * Discards the solution, if any, leaving the problem loaded.
+	 */
+	public void clearSolution() {
+		path = null;
+		solutionCost = 0;
+		solutionLoaded = false;
+	}
+
+	/**
+	 * Appends states to the end of the solution path, adding the cost of the
+	 * new steps to the solution cost.
+	 * 
+	 * @param states
+	 *            the states to append.
+	 */
+	public void appendToPath(List<ASVConfig> states) {
+		if (!problemLoaded || !solutionLoaded) {
+			return;
+		}
+		CompensatedSum cost = new CompensatedSum();
+		cost.set(solutionCost);
+		ASVConfig previous = path.get(path.size() - 1);
+		for (ASVConfig cfg : states) {
+			cost.add(previous.totalDistance(cfg));
+			previous = cfg;
+		}
+		path.addAll(states);
+		solutionCost = cost.getValue();
+	}
+
 	/**
 	 * Returns the solution path.
 	 * 
@@ -262,6 +522,35 @@ public class ProblemSpec {
 		return new ArrayList<ASVConfig>(path);
 	}
 
+	/**
+	 * Returns a read-only view of the solution path, without copying it.
+	 * 
+	 * @return a read-only view of the solution path.
+	 */
+	public List<ASVConfig> getPathView() {
+		return Collections.unmodifiableList(path);
+	}
+
+	/**
+	 * Returns the number of states in the solution path.
+	 * 
+	 * @return the number of states in the solution path.
+	 */
+	public int getPathLength() {
+		return path.size();
+	}
+
+	/**
+	 * Returns the state with the given index in the solution path.
+	 * 
+	 * @param index
+	 *            the index of the state.
+	 * @return the state with the given index in the solution path.
+	 */
+	public ASVConfig getPathState(int index) {
+		return path.get(index);
+	}
+
 	/**
 	 * Returns the cost of the solution.
 	 * 
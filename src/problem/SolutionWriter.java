@@ -0,0 +1,231 @@
+package problem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes a solution text file one state at a time, so that callers don't need
+ * to build the whole path in memory first.
+ *
+ * Coordinates are formatted directly into a large byte buffer, which is
+ * written out through a FileChannel whenever it fills up. Since the number of
+ * steps and the cost aren't known until the end, space for the header line is
+ * reserved at the start of the file and filled in when the writer is closed;
+ * the header is padded with trailing spaces, which the solution parser
+ * ignores.
+ *
+ * @author lackofcheese
+ */
+public class SolutionWriter implements Closeable {
+	/** The size of the output buffer */
+	private static final int BUFFER_SIZE = 1 << 20;
+	/** The width reserved for the header line, excluding the line separator */
+	private static final int HEADER_WIDTH = 64;
+
+	/** The line separator, as bytes */
+	private final byte[] lineSeparator = System.getProperty("line.separator")
+			.getBytes();
+
+	/** The file being written to */
+	private FileChannel channel;
+	/** The number of ASVs in each state */
+	private int asvCount;
+	/** The output buffer */
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	/** The number of bytes in the output buffer */
+	private int bufferPos = 0;
+	/** The maximum number of bytes a single state can take up */
+	private int maxLineLength;
+
+	/** The coordinates of the previous state, for the cost calculation */
+	private double[] previous;
+	/** The coordinates of the current state */
+	private double[] current;
+	/** The number of states written */
+	private long stateCount = 0;
+	/** The total cost of the states written */
+	private CompensatedSum solutionCost = new CompensatedSum();
+
+	/**
+	 * Constructor. Creates or truncates the given file and reserves space for
+	 * the header.
+	 *
+	 * @param filename
+	 *            the path of the text file to write to.
+	 * @param asvCount
+	 *            the number of ASVs in each state.
+	 * @throws IOException
+	 *             if the file cannot be opened for writing.
+	 */
+	public SolutionWriter(String filename, int asvCount) throws IOException {
+		this.asvCount = asvCount;
+		previous = new double[asvCount * 2];
+		current = new double[asvCount * 2];
+		maxLineLength = asvCount * 2 * (DoubleFormat.MAX_LENGTH + 1)
+				+ lineSeparator.length;
+		channel = FileChannel.open(Paths.get(filename),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		Arrays.fill(buffer, 0, HEADER_WIDTH, (byte) ' ');
+		bufferPos = HEADER_WIDTH;
+		bufferPos = appendSeparator(bufferPos);
+	}
+
+	/**
+	 * Appends a state to the solution.
+	 *
+	 * @param cfg
+	 *            the state to append.
+	 * @throws IOException
+	 *             if the file cannot be written to.
+	 */
+	public void write(ASVConfig cfg) throws IOException {
+		if (cfg.getASVCount() != asvCount) {
+			throw new IllegalArgumentException(String.format(
+					"Expected %d ASVs but got %d", asvCount, cfg.getASVCount()));
+		}
+		for (int i = 0; i < asvCount; i++) {
+			current[i * 2] = cfg.getPosition(i).getX();
+			current[i * 2 + 1] = cfg.getPosition(i).getY();
+		}
+		writeCurrent();
+	}
+
+	/**
+	 * Appends a state to the solution, given as an array of 2n x- and
+	 * y-coordinates, where n is the number of ASVs.
+	 *
+	 * @param coords
+	 *            the coordinates of the ASVs.
+	 * @throws IOException
+	 *             if the file cannot be written to.
+	 */
+	public void write(double[] coords) throws IOException {
+		System.arraycopy(coords, 0, current, 0, asvCount * 2);
+		writeCurrent();
+	}
+
+	/**
+	 * Formats the current state into the buffer and updates the cost.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written to.
+	 */
+	private void writeCurrent() throws IOException {
+		if (BUFFER_SIZE - bufferPos < maxLineLength) {
+			flush();
+		}
+		int pos = bufferPos;
+		for (int i = 0; i < current.length; i++) {
+			if (i > 0) {
+				buffer[pos++] = ' ';
+			}
+			pos = DoubleFormat.format(current[i], buffer, pos);
+		}
+		bufferPos = appendSeparator(pos);
+
+		if (stateCount > 0) {
+			double stepCost = 0;
+			for (int i = 0; i < asvCount; i++) {
+				double dx = current[i * 2] - previous[i * 2];
+				double dy = current[i * 2 + 1] - previous[i * 2 + 1];
+				stepCost += Math.sqrt(dx * dx + dy * dy);
+			}
+			solutionCost.add(stepCost);
+		}
+		double[] temp = previous;
+		previous = current;
+		current = temp;
+		stateCount++;
+	}
+
+	/**
+	 * Appends the line separator to the buffer.
+	 *
+	 * @param pos
+	 *            the position at which to write it.
+	 * @return the position after the separator.
+	 */
+	private int appendSeparator(int pos) {
+		System.arraycopy(lineSeparator, 0, buffer, pos, lineSeparator.length);
+		return pos + lineSeparator.length;
+	}
+
+	/**
+	 * Writes out the contents of the buffer.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written to.
+	 */
+	public void flush() throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(buffer, 0, bufferPos);
+		while (bb.hasRemaining()) {
+			channel.write(bb);
+		}
+		bufferPos = 0;
+	}
+
+	/**
+	 * Overrides the cost written to the header, which by default is the total
+	 * distance over the states written. Call this after the last state has
+	 * been written.
+	 *
+	 * @param solutionCost
+	 *            the cost to write.
+	 */
+	public void setSolutionCost(double solutionCost) {
+		this.solutionCost.set(solutionCost);
+	}
+
+	/**
+	 * Returns the total cost of the states written so far.
+	 *
+	 * @return the total cost of the states written so far.
+	 */
+	public double getSolutionCost() {
+		return solutionCost.getValue();
+	}
+
+	/**
+	 * Returns the number of states written so far.
+	 *
+	 * @return the number of states written so far.
+	 */
+	public long getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Writes out any buffered states, fills in the header and closes the file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written to.
+	 */
+	public void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		try {
+			flush();
+			byte[] header = new byte[HEADER_WIDTH];
+			Arrays.fill(header, (byte) ' ');
+			int pos = DoubleFormat.writeLong(Math.max(stateCount - 1, 0),
+					header, 0);
+			header[pos++] = ' ';
+			DoubleFormat.format(solutionCost.getValue(), header, pos);
+			ByteBuffer bb = ByteBuffer.wrap(header);
+			long position = 0;
+			while (bb.hasRemaining()) {
+				position += channel.write(bb, position);
+			}
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package tester;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reduces the rectangles that booms are tested against to a smaller set that
+ * collides with exactly the same booms.
+ *
+ * The rectangles should already have been shrunk by the maximum error, and
+ * they are treated as closed, as Rectangle2D.intersectsLine does; a
+ * rectangle with no width or height collides with nothing. Obstacles that
+ * merely abut are therefore left separate, since their shrunk rectangles are
+ * twice the maximum error apart and merging them would close the gap between
+ * them.
+ */
+public final class ObstacleReducer {
+	/** Orders rectangles by their vertical extent, then from left to right */
+	private static final Comparator<Rectangle2D> BY_ROW = new Comparator<Rectangle2D>() {
+		@Override
+		public int compare(Rectangle2D r1, Rectangle2D r2) {
+			int result = Double.compare(r1.getMinY(), r2.getMinY());
+			if (result == 0) {
+				result = Double.compare(r1.getMaxY(), r2.getMaxY());
+			}
+			if (result == 0) {
+				result = Double.compare(r1.getMinX(), r2.getMinX());
+			}
+			return result;
+		}
+	};
+
+	/** Orders rectangles by their horizontal extent, then from bottom to top */
+	private static final Comparator<Rectangle2D> BY_COLUMN = new Comparator<Rectangle2D>() {
+		@Override
+		public int compare(Rectangle2D r1, Rectangle2D r2) {
+			int result = Double.compare(r1.getMinX(), r2.getMinX());
+			if (result == 0) {
+				result = Double.compare(r1.getMaxX(), r2.getMaxX());
+			}
+			if (result == 0) {
+				result = Double.compare(r1.getMinY(), r2.getMinY());
+			}
+			return result;
+		}
+	};
+
+	/** Orders rectangles from the largest area to the smallest */
+	private static final Comparator<Rectangle2D> BY_AREA = new Comparator<Rectangle2D>() {
+		@Override
+		public int compare(Rectangle2D r1, Rectangle2D r2) {
+			return Double.compare(r2.getWidth() * r2.getHeight(),
+					r1.getWidth() * r1.getHeight());
+		}
+	};
+
+	private ObstacleReducer() {
+	}
+
+	/**
+	 * Returns the rectangles that touch the given area; a boom lying wholly
+	 * within the area can't collide with any of the others.
+	 *
+	 * @param rects
+	 *            the rectangles.
+	 * @param area
+	 *            the area, e.g. the bounds of every state in a path.
+	 * @return the rectangles that touch the area.
+	 */
+	public static List<Rectangle2D> prune(List<Rectangle2D> rects,
+			Rectangle2D area) {
+		List<Rectangle2D> result = new ArrayList<Rectangle2D>();
+		for (Rectangle2D rect : rects) {
+			if (rect.getMinX() <= area.getMaxX()
+					&& area.getMinX() <= rect.getMaxX()
+					&& rect.getMinY() <= area.getMaxY()
+					&& area.getMinY() <= rect.getMaxY()) {
+				result.add(rect);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the rectangles clipped to the given area; a boom lying wholly
+	 * within the area collides with a rectangle exactly when it collides with
+	 * the part of it inside the area. Clipping shrinks the rectangles and lines
+	 * up their edges along the area's, so more of them can be merged. A
+	 * rectangle that would lose its width or height, or whose edges would be
+	 * moved by rounding, is left unclipped in that direction.
+	 *
+	 * @param rects
+	 *            the rectangles, all of which should touch the area.
+	 * @param area
+	 *            the area, e.g. the bounds of every state in a path.
+	 * @return the clipped rectangles.
+	 */
+	public static List<Rectangle2D> crop(List<Rectangle2D> rects,
+			Rectangle2D area) {
+		List<Rectangle2D> result = new ArrayList<Rectangle2D>();
+		for (Rectangle2D rect : rects) {
+			double minX = rect.getMinX();
+			double maxX = rect.getMaxX();
+			double minY = rect.getMinY();
+			double maxY = rect.getMaxY();
+			double croppedMinX = Math.max(minX, area.getMinX());
+			double croppedMaxX = Math.min(maxX, area.getMaxX());
+			if (croppedMinX < croppedMaxX) {
+				minX = croppedMinX;
+				maxX = croppedMaxX;
+			}
+			double croppedMinY = Math.max(minY, area.getMinY());
+			double croppedMaxY = Math.min(maxY, area.getMaxY());
+			if (croppedMinY < croppedMaxY) {
+				minY = croppedMinY;
+				maxY = croppedMaxY;
+			}
+			Rectangle2D cropped = union(minX, minY, maxX, maxY);
+			result.add(cropped != null ? cropped : rect);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an equivalent set of rectangles, with empty rectangles and
+	 * rectangles inside others removed, and rectangles whose union is itself
+	 * a rectangle merged; this is repeated until nothing changes, since each
+	 * merge can allow others.
+	 *
+	 * @param rects
+	 *            the rectangles.
+	 * @return the reduced set of rectangles.
+	 */
+	public static List<Rectangle2D> merge(List<Rectangle2D> rects) {
+		List<Rectangle2D> result = new ArrayList<Rectangle2D>();
+		for (Rectangle2D rect : rects) {
+			if (rect.getWidth() > 0 && rect.getHeight() > 0) {
+				result.add(rect);
+			}
+		}
+		int count;
+		do {
+			count = result.size();
+			result = removeContained(result);
+			result = mergeRuns(result, true);
+			result = mergeRuns(result, false);
+		} while (result.size() < count);
+		return result;
+	}
+
+	/**
+	 * Returns the rectangles that don't lie inside any of the others; of
+	 * identical rectangles, only one is kept.
+	 */
+	private static List<Rectangle2D> removeContained(List<Rectangle2D> rects) {
+		List<Rectangle2D> sorted = new ArrayList<Rectangle2D>(rects);
+		Collections.sort(sorted, BY_AREA);
+		List<Rectangle2D> result = new ArrayList<Rectangle2D>();
+		for (Rectangle2D rect : sorted) {
+			boolean contained = false;
+			for (Rectangle2D other : result) {
+				if (other.getMinX() <= rect.getMinX()
+						&& rect.getMaxX() <= other.getMaxX()
+						&& other.getMinY() <= rect.getMinY()
+						&& rect.getMaxY() <= other.getMaxY()) {
+					contained = true;
+					break;
+				}
+			}
+			if (!contained) {
+				result.add(rect);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Merges each run of rectangles that share the same extent across the
+	 * given direction and overlap or touch along it.
+	 *
+	 * @param rects
+	 *            the rectangles.
+	 * @param horizontal
+	 *            true to merge rectangles side by side, or false to merge
+	 *            rectangles one above the other.
+	 * @return the merged rectangles.
+	 */
+	private static List<Rectangle2D> mergeRuns(List<Rectangle2D> rects,
+			boolean horizontal) {
+		List<Rectangle2D> sorted = new ArrayList<Rectangle2D>(rects);
+		Collections.sort(sorted, horizontal ? BY_ROW : BY_COLUMN);
+		List<Rectangle2D> result = new ArrayList<Rectangle2D>();
+		Rectangle2D current = null;
+		for (Rectangle2D rect : sorted) {
+			Rectangle2D merged = null;
+			if (current != null) {
+				merged = horizontal ? mergeSideBySide(current, rect)
+						: mergeAbove(current, rect);
+			}
+			if (merged != null) {
+				current = merged;
+			} else {
+				if (current != null) {
+					result.add(current);
+				}
+				current = rect;
+			}
+		}
+		if (current != null) {
+			result.add(current);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the union of two rectangles with the same vertical extent, the
+	 * second starting no further left than the first, if they overlap or
+	 * touch; otherwise returns null.
+	 */
+	private static Rectangle2D mergeSideBySide(Rectangle2D left,
+			Rectangle2D right) {
+		if (left.getMinY() != right.getMinY()
+				|| left.getMaxY() != right.getMaxY()
+				|| right.getMinX() > left.getMaxX()) {
+			return null;
+		}
+		return union(left.getMinX(), left.getMinY(),
+				Math.max(left.getMaxX(), right.getMaxX()), left.getMaxY());
+	}
+
+	/**
+	 * Returns the union of two rectangles with the same horizontal extent,
+	 * the second starting no lower than the first, if they overlap or touch;
+	 * otherwise returns null.
+	 */
+	private static Rectangle2D mergeAbove(Rectangle2D below, Rectangle2D above) {
+		if (below.getMinX() != above.getMinX()
+				|| below.getMaxX() != above.getMaxX()
+				|| above.getMinY() > below.getMaxY()) {
+			return null;
+		}
+		return union(below.getMinX(), below.getMinY(), below.getMaxX(),
+				Math.max(below.getMaxY(), above.getMaxY()));
+	}
+
+	/**
+	 * Returns the rectangle with the given bounds, or null if rounding would
+	 * move its far edges.
+	 */
+	private static Rectangle2D union(double minX, double minY, double maxX,
+			double maxY) {
+		Rectangle2D rect = new Rectangle2D.Double(minX, minY, maxX - minX,
+				maxY - minY);
+		if (rect.getMaxX() != maxX || rect.getMaxY() != maxY) {
+			return null;
+		}
+		return rect;
+	}
+}
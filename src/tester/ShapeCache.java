@@ -0,0 +1,170 @@
+package tester;
+
+import problem.ASVConfig;
+
+/**
+ * Remembers the result of a shape check for the last state it was done for,
+ * so that it can be reused for later states of the same shape.
+ *
+ * Convexity and area don't change when a state is translated or rotated.
+ * Along with the result, the cache stores the slack of the state: how far
+ * every ASV could move without the result changing. A later state reuses the
+ * result if it is identical to the state before it, or if it is within the
+ * slack of a rigid motion of the stored state; otherwise the caller does the
+ * check in full and stores its result in turn.
+ */
+class ShapeCache {
+	/** The amount by which slacks are reduced to allow for rounding */
+	private static final double SLACK_MARGIN = 1e-9;
+
+	/** The last state looked up, whose result is the stored one */
+	private ASVConfig previous;
+	/** The position of each ASV in the stored state relative to the first */
+	private double[] referenceXs = new double[0];
+	private double[] referenceYs = new double[0];
+	/** The slack of the stored state, or a negative number if it failed */
+	private double slack;
+	/** The number of states checked in full */
+	private int checkCount;
+	/** The number of states that reused the result as identical states */
+	private int identicalCount;
+	/** The number of states that reused the result as rigid motions */
+	private int rigidCount;
+
+	/**
+	 * Forgets the stored result and resets the counts.
+	 */
+	public void clear() {
+		previous = null;
+		checkCount = 0;
+		identicalCount = 0;
+		rigidCount = 0;
+	}
+
+	/**
+	 * Returns whether the stored result applies to the given state, counting
+	 * a hit if it does.
+	 *
+	 * @param cfg
+	 *            the state to look up.
+	 * @return whether the stored result applies to the given state.
+	 */
+	public boolean matches(ASVConfig cfg) {
+		if (previous == null || previous.getASVCount() != cfg.getASVCount()) {
+			return false;
+		}
+		if (isIdentical(cfg)) {
+			identicalCount++;
+		} else if (isRigidMotion(cfg, slack - SLACK_MARGIN)) {
+			rigidCount++;
+		} else {
+			return false;
+		}
+		previous = cfg;
+		return true;
+	}
+
+	/**
+	 * Stores the result of checking the given state in full.
+	 *
+	 * @param cfg
+	 *            the state that was checked.
+	 * @param slack
+	 *            how far every ASV could move without the result changing,
+	 *            or a negative number if the state failed the check.
+	 */
+	public void store(ASVConfig cfg, double slack) {
+		int n = cfg.getASVCount();
+		if (referenceXs.length != n) {
+			referenceXs = new double[n];
+			referenceYs = new double[n];
+		}
+		for (int i = 0; i < n; i++) {
+			referenceXs[i] = cfg.getX(i) - cfg.getX(0);
+			referenceYs[i] = cfg.getY(i) - cfg.getY(0);
+		}
+		previous = cfg;
+		this.slack = slack;
+		checkCount++;
+	}
+
+	/**
+	 * Returns whether the stored state passed the check.
+	 *
+	 * @return whether the stored state passed the check.
+	 */
+	public boolean isValid() {
+		return slack >= 0;
+	}
+
+	public int getCheckCount() {
+		return checkCount;
+	}
+
+	public int getIdenticalCount() {
+		return identicalCount;
+	}
+
+	public int getRigidCount() {
+		return rigidCount;
+	}
+
+	/**
+	 * Returns whether the given state has exactly the same coordinates as the
+	 * state before it.
+	 */
+	private boolean isIdentical(ASVConfig cfg) {
+		if (cfg == previous) {
+			return true;
+		}
+		for (int i = 0; i < cfg.getASVCount(); i++) {
+			if (cfg.getX(i) != previous.getX(i)
+					|| cfg.getY(i) != previous.getY(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether every ASV in the given state is less than the given
+	 * distance from where it would be if the stored state were moved rigidly
+	 * so that its first boom lay along the first boom of the given state.
+	 *
+	 * @param cfg
+	 *            the state to compare with the stored state.
+	 * @param limit
+	 *            the distance.
+	 * @return whether the given state is a rigid motion of the stored state,
+	 *         to within the given distance.
+	 */
+	private boolean isRigidMotion(ASVConfig cfg, double limit) {
+		int n = cfg.getASVCount();
+		if (limit <= 0 || n < 2) {
+			return false;
+		}
+		double cx0 = cfg.getX(0);
+		double cy0 = cfg.getY(0);
+		double ux = referenceXs[1];
+		double uy = referenceYs[1];
+		double vx = cfg.getX(1) - cx0;
+		double vy = cfg.getY(1) - cy0;
+		double norm = Math.sqrt((ux * ux + uy * uy) * (vx * vx + vy * vy));
+		if (norm == 0) {
+			return false;
+		}
+		double cos = (ux * vx + uy * vy) / norm;
+		double sin = (ux * vy - uy * vx) / norm;
+		double limitSq = limit * limit;
+		for (int i = 0; i < n; i++) {
+			double dx = referenceXs[i];
+			double dy = referenceYs[i];
+			double ex = cx0 + cos * dx - sin * dy - cfg.getX(i);
+			double ey = cy0 + sin * dx + cos * dy - cfg.getY(i);
+			if (!(ex * ex + ey * ey < limitSq)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -23,6 +23,13 @@ public class Tester {
 	public static final Rectangle2D BOUNDS = new Rectangle2D.Double(0, 0, 1, 1);
 	/** The default value for maximum error */
 	public static final double DEFAULT_MAX_ERROR = 1e-5;
+	/** The amount by which clearances are reduced to allow for rounding */
+	private static final double CLEARANCE_MARGIN = 1e-9;
+	/**
+	 * The most states checked without measuring the clearance, while the
+	 * path is near obstacles
+	 */
+	private static final int MAX_CLEARANCE_BACKOFF = 64;
 
 	/**
 	 * Returns the minimum area required for the given number of ASVs.
@@ -57,6 +64,15 @@ public class Tester {
 	private double maxError;
 	/** The workspace bounds, with allowable error. */
 	private Rectangle2D lenientBounds;
+	/** The number of states fully checked by the last collision pass */
+	private int collisionCheckCount = 0;
+	/** The number of obstacles in the last collision pass */
+	private int obstacleCount = 0;
+	/** The number of rectangles they were reduced to */
+	private int reducedObstacleCount = 0;
+	/** The results of the shape checks, for reuse by states of that shape */
+	private ShapeCache convexityCache = new ShapeCache();
+	private ShapeCache areaCache = new ShapeCache();
 
 	/**
 	 * Constructor. Creates a Tester with the default value for maximum error.
@@ -98,7 +114,7 @@ public class Tester {
 	 * @return whether the first cfg is the initial cfg.
 	 */
 	public boolean hasInitialFirst() {
-		return ps.getPath().get(0).maxDistance(ps.getInitialState()) <= maxError;
+		return ps.getPathState(0).maxDistance(ps.getInitialState()) <= maxError;
 	}
 
 	/**
@@ -122,8 +138,8 @@ public class Tester {
 	 * @return whether the last cfg is the goal cfg.
 	 */
 	public boolean hasGoalLast() {
-		List<ASVConfig> path = ps.getPath();
-		return path.get(path.size() - 1).maxDistance(ps.getGoalState()) <= maxError;
+		return ps.getPathState(ps.getPathLength() - 1).maxDistance(
+				ps.getGoalState()) <= maxError;
 	}
 
 	/**
@@ -151,7 +167,7 @@ public class Tester {
 		if (!badSteps.isEmpty()) {
 			System.out.println(String.format(
 					"FAILED: Distance exceeds 0.001 for %d of %d step(s).",
-					badSteps.size(), ps.getPath().size() - 1));
+					badSteps.size(), ps.getPathLength() - 1));
 			if (verbose) {
 				System.out.println("Starting line for each invalid step:");
 				System.out.println(addToAll(badSteps, 2));
@@ -170,10 +186,9 @@ public class Tester {
 	 */
 	public List<Integer> getInvalidSteps() {
 		List<Integer> badSteps = new ArrayList<Integer>();
-		List<ASVConfig> path = ps.getPath();
-		ASVConfig state = path.get(0);
-		for (int i = 1; i < path.size(); i++) {
-			ASVConfig nextState = path.get(i);
+		ASVConfig state = ps.getPathState(0);
+		for (int i = 1; i < ps.getPathLength(); i++) {
+			ASVConfig nextState = ps.getPathState(i);
 			if (!isValidStep(state, nextState)) {
 				badSteps.add(i - 1);
 			}
@@ -205,7 +220,7 @@ public class Tester {
 		if (!badStates.isEmpty()) {
 			System.out.println(String.format(
 					"FAILED: Invalid boom length for %d of %d state(s).",
-					badStates.size(), ps.getPath().size()));
+					badStates.size(), ps.getPathLength()));
 			if (verbose) {
 				if (verbose) {
 					System.out.println("Line for each invalid cfg:");
@@ -226,9 +241,8 @@ public class Tester {
 	 */
 	public List<Integer> getInvalidBoomStates() {
 		List<Integer> badStates = new ArrayList<Integer>();
-		List<ASVConfig> path = ps.getPath();
-		for (int i = 0; i < path.size(); i++) {
-			if (!hasValidBoomLengths(path.get(i))) {
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			if (!hasValidBoomLengths(ps.getPathState(i))) {
 				badStates.add(i);
 			}
 		}
@@ -243,11 +257,9 @@ public class Tester {
 	 * @return whether the booms in the given configuration have valid lengths.
 	 */
 	public boolean hasValidBoomLengths(ASVConfig cfg) {
-		List<Point2D> points = cfg.getASVPositions();
-		for (int i = 1; i < points.size(); i++) {
-			Point2D p0 = points.get(i - 1);
-			Point2D p1 = points.get(i);
-			double boomLength = p0.distance(p1);
+		for (int i = 1; i < cfg.getASVCount(); i++) {
+			double boomLength = Point2D.distance(cfg.getX(i - 1),
+					cfg.getY(i - 1), cfg.getX(i), cfg.getY(i));
 			if (boomLength < MIN_BOOM_LENGTH - maxError) {
 				return false;
 			} else if (boomLength > MAX_BOOM_LENGTH + maxError) {
@@ -267,28 +279,37 @@ public class Tester {
 		if (!badStates.isEmpty()) {
 			System.out.println(String.format(
 					"FAILED: %d of %d state(s) are not convex.",
-					badStates.size(), ps.getPath().size()));
+					badStates.size(), ps.getPathLength()));
 			if (verbose) {
 				System.out.println("Line for each invalid cfg:");
 				System.out.println(addToAll(badStates, 2));
+				printReuseCounts(convexityCache);
 			}
 			return false;
 		} else {
 			System.out.println("Passed.");
+			if (verbose) {
+				printReuseCounts(convexityCache);
+			}
 			return true;
 		}
 	}
 
 	/**
-	 * Returns the path indices of any non-convex states.
+	 * Returns the path indices of any non-convex states. States that are the
+	 * same shape as the last state checked reuse its result.
 	 *
 	 * @return the path indices of any non-convex states.
 	 */
 	public List<Integer> getNonConvexStates() {
 		List<Integer> badStates = new ArrayList<Integer>();
-		List<ASVConfig> path = ps.getPath();
-		for (int i = 0; i < path.size(); i++) {
-			if (!isConvex(path.get(i))) {
+		convexityCache.clear();
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			ASVConfig cfg = ps.getPathState(i);
+			if (!convexityCache.matches(cfg)) {
+				convexityCache.store(cfg, getConvexitySlack(cfg));
+			}
+			if (!convexityCache.isValid()) {
 				badStates.add(i);
 			}
 		}
@@ -320,50 +341,75 @@ public class Tester {
 	 * @return whether the given configuration is convex.
 	 */
 	public boolean isConvex(ASVConfig cfg) {
-		List<Point2D> points = cfg.getASVPositions();
-		points.add(points.get(0));
-		points.add(points.get(1));
+		return getConvexitySlack(cfg) >= 0;
+	}
 
+	/**
+	 * Returns how far every ASV in the given configuration could move without
+	 * its convexity changing. Each turning angle must stay clear of the
+	 * limits that decide its sign, and the total turned must stay clear of
+	 * the limit on it.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @return the slack of the configuration, or -1 if it isn't convex.
+	 */
+	private double getConvexitySlack(ASVConfig cfg) {
+		int n = cfg.getASVCount();
 		double requiredSign = 0;
 		double totalTurned = 0;
-		Point2D p0 = points.get(0);
-		Point2D p1 = points.get(1);
-		double angle = Math.atan2(p1.getY() - p0.getY(), p1.getX() - p0.getX());
-		for (int i = 2; i < points.size(); i++) {
-			Point2D p2 = points.get(i);
-			double nextAngle = Math.atan2(p2.getY() - p1.getY(),
-					p2.getX() - p1.getX());
+		double angleSlack = Double.POSITIVE_INFINITY;
+		double minBoomLength = Double.POSITIVE_INFINITY;
+		double x1 = cfg.getX(1);
+		double y1 = cfg.getY(1);
+		double angle = Math.atan2(y1 - cfg.getY(0), x1 - cfg.getX(0));
+		for (int i = 2; i < n + 2; i++) {
+			double x2 = cfg.getX(i % n);
+			double y2 = cfg.getY(i % n);
+			double nextAngle = Math.atan2(y2 - y1, x2 - x1);
 			double turningAngle = normaliseAngle(nextAngle - angle);
 
 			if (turningAngle == Math.PI) {
-				return false;
+				return -1;
 			}
 
 			totalTurned += Math.abs(turningAngle);
 			if (totalTurned > 3 * Math.PI) {
-				return false;
+				return -1;
 			}
 
 			double turnSign;
 			if (turningAngle < -maxError) {
 				turnSign = -1;
+				angleSlack = Math.min(angleSlack, Math.min(-maxError
+						- turningAngle, turningAngle + Math.PI));
 			} else if (turningAngle > maxError) {
 				turnSign = 1;
+				angleSlack = Math.min(angleSlack, Math.min(turningAngle
+						- maxError, Math.PI - turningAngle));
 			} else {
 				turnSign = 0;
+				angleSlack = Math.min(angleSlack,
+						maxError - Math.abs(turningAngle));
 			}
 
 			if (turnSign * requiredSign < 0) {
-				return false;
+				return -1;
 			} else if (turnSign != 0) {
 				requiredSign = turnSign;
 			}
 
-			p0 = p1;
-			p1 = p2;
+			minBoomLength = Math.min(minBoomLength,
+					Point2D.distance(x1, y1, x2, y2));
+			x1 = x2;
+			y1 = y2;
 			angle = nextAngle;
 		}
-		return true;
+		angleSlack = Math.min(angleSlack, (3 * Math.PI - totalTurned) / n);
+		// Moving both ends of a boom of length L by d turns it by at most
+		// pi * d / L, and each turning angle is between two booms.
+		double slack = angleSlack * minBoomLength / (2 * Math.PI);
+		return slack > 0 ? slack : 0;
 	}
 
 	/**
@@ -375,28 +421,37 @@ public class Tester {
 		if (!badStates.isEmpty()) {
 			System.out.println(String.format(
 					"FAILED: %d of %d state(s) have insufficient area.",
-					badStates.size(), ps.getPath().size()));
+					badStates.size(), ps.getPathLength()));
 			if (verbose) {
 				System.out.println("Line for each invalid cfg:");
 				System.out.println(addToAll(badStates, 2));
+				printReuseCounts(areaCache);
 			}
 			return false;
 		} else {
 			System.out.println("Passed.");
+			if (verbose) {
+				printReuseCounts(areaCache);
+			}
 			return true;
 		}
 	}
 
 	/**
-	 * Returns the path indices of any states with insufficient area.
+	 * Returns the path indices of any states with insufficient area. States
+	 * that are the same shape as the last state checked reuse its result.
 	 *
 	 * @return the path indices of any states with insufficient area.
 	 */
 	public List<Integer> getInvalidAreaStates() {
-		List<ASVConfig> path = ps.getPath();
 		List<Integer> badStates = new ArrayList<Integer>();
-		for (int i = 0; i < path.size(); i++) {
-			if (!hasEnoughArea(path.get(i))) {
+		areaCache.clear();
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			ASVConfig cfg = ps.getPathState(i);
+			if (!areaCache.matches(cfg)) {
+				areaCache.store(cfg, getAreaSlack(cfg));
+			}
+			if (!areaCache.isValid()) {
 				badStates.add(i);
 			}
 		}
@@ -411,16 +466,36 @@ public class Tester {
 	 * @return whether the given configuration has sufficient area.
 	 */
 	public boolean hasEnoughArea(ASVConfig cfg) {
+		return getAreaSlack(cfg) >= 0;
+	}
+
+	/**
+	 * Returns how far every ASV in the given configuration could move without
+	 * the sufficiency of its area changing.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @return the slack of the configuration, or -1 if its area is
+	 *         insufficient.
+	 */
+	private double getAreaSlack(ASVConfig cfg) {
 		double total = 0;
-		List<Point2D> points = cfg.getASVPositions();
-		points.add(points.get(0));
-		points.add(points.get(1));
-		for (int i = 1; i < points.size() - 1; i++) {
-			total += points.get(i).getX()
-					* (points.get(i + 1).getY() - points.get(i - 1).getY());
+		double spread = 0;
+		int n = cfg.getASVCount();
+		for (int i = 1; i < n + 1; i++) {
+			double dx = cfg.getX((i + 1) % n) - cfg.getX(i - 1);
+			double dy = cfg.getY((i + 1) % n) - cfg.getY(i - 1);
+			total += cfg.getX(i % n) * dy;
+			spread += Math.abs(dx) + Math.abs(dy);
 		}
 		double area = Math.abs(total) / 2;
-		return (area >= getMinimumArea(cfg.getASVCount()) - maxError);
+		double minArea = getMinimumArea(cfg.getASVCount()) - maxError;
+		if (area >= minArea) {
+			// Moving every ASV by d <= 1 changes the area by at most
+			// d * spread / 2 + n * d * d / 2.
+			return (area - minArea) / ((spread + n) / 2);
+		}
+		return -1;
 	}
 
 	/**
@@ -432,7 +507,7 @@ public class Tester {
 		if (!badStates.isEmpty()) {
 			System.out.println(String.format("FAILED: %d of %d"
 					+ " state(s) go out of the workspace bounds.",
-					badStates.size(), ps.getPath().size()));
+					badStates.size(), ps.getPathLength()));
 			if (verbose) {
 				System.out.println("Line for each invalid cfg:");
 				System.out.println(addToAll(badStates, 2));
@@ -450,10 +525,9 @@ public class Tester {
 	 * @return the path indices of any states that are out of bounds.
 	 */
 	public List<Integer> getOutOfBoundsStates() {
-		List<ASVConfig> path = ps.getPath();
 		List<Integer> badStates = new ArrayList<Integer>();
-		for (int i = 0; i < path.size(); i++) {
-			if (!fitsBounds(path.get(i))) {
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			if (!fitsBounds(ps.getPathState(i))) {
 				badStates.add(i);
 			}
 		}
@@ -468,14 +542,32 @@ public class Tester {
 	 * @return whether the given configuration fits wholly within the bounds.
 	 */
 	public boolean fitsBounds(ASVConfig cfg) {
-		for (Point2D p : cfg.getASVPositions()) {
-			if (!lenientBounds.contains(p)) {
+		for (int i = 0; i < cfg.getASVCount(); i++) {
+			if (!lenientBounds.contains(cfg.getX(i), cfg.getY(i))) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Returns the indices of the ASVs in the given configuration that lie
+	 * outside the bounds.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @return the indices of the ASVs outside the bounds.
+	 */
+	public List<Integer> getOutOfBoundsASVs(ASVConfig cfg) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < cfg.getASVCount(); i++) {
+			if (!lenientBounds.contains(cfg.getX(i), cfg.getY(i))) {
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Checks that each configuration does not collide with any of the
 	 * obstacles.
@@ -486,34 +578,299 @@ public class Tester {
 		if (!badStates.isEmpty()) {
 			System.out.println(String.format(
 					"FAILED: %d of %d state(s) collide with obstacles.",
-					badStates.size(), ps.getPath().size()));
+					badStates.size(), ps.getPathLength()));
 			if (verbose) {
 				System.out.println("Line for each invalid cfg:");
 				System.out.println(addToAll(badStates, 2));
+				printObstacleReduction();
+				printCollisionCheckCount();
 			}
 			return false;
 		} else {
 			System.out.println("Passed.");
+			if (verbose) {
+				printObstacleReduction();
+				printCollisionCheckCount();
+			}
 			return true;
 		}
 	}
 
+	/**
+	 * Prints how many states reused the result of a shape check rather than
+	 * being checked in full.
+	 */
+	private void printReuseCounts(ShapeCache cache) {
+		int reused = cache.getIdenticalCount() + cache.getRigidCount();
+		int total = reused + cache.getCheckCount();
+		System.out.println(String.format("Reused results for %d of %d "
+				+ "state(s) (%.1f%%): %d identical, %d moved rigidly.",
+				reused, total, total == 0 ? 0.0 : reused * 100.0 / total,
+				cache.getIdenticalCount(), cache.getRigidCount()));
+	}
+
+	/**
+	 * Prints how many rectangles the obstacles were reduced to for the last
+	 * collision pass.
+	 */
+	private void printObstacleReduction() {
+		System.out.println(String.format("Reduced %d obstacle(s) to %d "
+				+ "rectangle(s) (ratio %.3f).", obstacleCount,
+				reducedObstacleCount, obstacleCount == 0 ? 1.0
+						: (double) reducedObstacleCount / obstacleCount));
+	}
+
+	/**
+	 * Prints how many states the last collision pass checked against every
+	 * obstacle.
+	 */
+	private void printCollisionCheckCount() {
+		System.out.println(String.format(
+				"Checked %d of %d state(s) against every obstacle.",
+				collisionCheckCount, ps.getPathLength()));
+	}
+
 	/**
 	 * Returns the path indices of any states that collide with obstacles.
 	 *
+	 * No point on a boom moves further between two states than the ASVs at
+	 * its ends, so the distance from any boom to any obstacle shrinks by at
+	 * most the furthest distance moved by an ASV. Once a state's clearance
+	 * from the obstacles is known, the states that follow it are therefore
+	 * skipped until the ASVs have moved that far in total; only states near
+	 * obstacles are checked against every obstacle. The distances actually
+	 * moved are used, rather than MAX_STEP, so that this holds even if some
+	 * steps are invalid.
+	 *
+	 * Measuring the clearance costs more than checking for a collision, so
+	 * while the path stays too close to obstacles for any state to be
+	 * skipped, states are checked without measuring it, and it is measured
+	 * again after a number of states that doubles each time.
+	 *
+	 * Before the pass, obstacles out of reach of the path are dropped and the
+	 * rest clipped to it and merged where possible; see getReducedRects.
+	 *
 	 * @return the path indices of any states that collide with obstacles.
 	 */
 	public List<Integer> getCollidingStates() {
-		List<ASVConfig> path = ps.getPath();
+		Rectangle2D[] lenientRects = getReducedRects();
 		List<Integer> badStates = new ArrayList<Integer>();
-		for (int i = 0; i < path.size(); i++) {
-			if (hasCollision(path.get(i), ps.getObstacles())) {
+		collisionCheckCount = 0;
+		if (lenientRects.length == 0) {
+			return badStates;
+		}
+		double clearance = 0;
+		int measureFrom = 0;
+		int backoff = 1;
+		ASVConfig previous = null;
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			ASVConfig cfg = ps.getPathState(i);
+			if (clearance > 0) {
+				double moved = previous.maxDistance(cfg);
+				clearance = moved < 0 ? 0 : clearance - moved;
+			}
+			previous = cfg;
+			if (clearance > 0) {
+				continue;
+			}
+			collisionCheckCount++;
+			if (i >= measureFrom) {
+				clearance = getClearance(cfg, lenientRects) - CLEARANCE_MARGIN;
+				if (clearance < MAX_STEP) {
+					measureFrom = i + backoff;
+					backoff = Math.min(backoff * 2, MAX_CLEARANCE_BACKOFF);
+				} else {
+					backoff = 1;
+				}
+			}
+			if (clearance <= 0 && hasCollision(cfg, lenientRects)) {
 				badStates.add(i);
 			}
 		}
 		return badStates;
 	}
 
+	/**
+	 * Returns the rectangles of the obstacles, shrunk by maxError, reduced to
+	 * a set that collides with exactly the same booms of the solution path:
+	 * rectangles that don't touch the bounds of the path are dropped, the rest
+	 * are clipped to those bounds, and they are then merged where their union
+	 * is itself a rectangle. This is done for each pass rather than when the
+	 * problem is loaded, since it depends on the path and on maxError.
+	 *
+	 * @return the reduced rectangles.
+	 */
+	private Rectangle2D[] getReducedRects() {
+		Rectangle2D[] lenientRects = getLenientRects(ps.getObstaclesView());
+		List<Rectangle2D> rects = Arrays.asList(lenientRects);
+		Rectangle2D pathBounds = getPathBounds();
+		if (pathBounds != null) {
+			rects = ObstacleReducer.prune(rects, pathBounds);
+			rects = ObstacleReducer.crop(rects, pathBounds);
+		}
+		rects = ObstacleReducer.merge(rects);
+		obstacleCount = lenientRects.length;
+		reducedObstacleCount = rects.size();
+		return rects.toArray(new Rectangle2D[rects.size()]);
+	}
+
+	/**
+	 * Returns the bounds of every state in the solution path, or null if the
+	 * path is empty.
+	 *
+	 * @return the bounds of the path.
+	 */
+	private Rectangle2D getPathBounds() {
+		if (ps.getPathLength() == 0) {
+			return null;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < ps.getPathLength(); i++) {
+			ASVConfig cfg = ps.getPathState(i);
+			for (int j = 0; j < cfg.getASVCount(); j++) {
+				minX = Math.min(minX, cfg.getX(j));
+				minY = Math.min(minY, cfg.getY(j));
+				maxX = Math.max(maxX, cfg.getX(j));
+				maxY = Math.max(maxY, cfg.getY(j));
+			}
+		}
+		return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Returns the number of obstacle rectangles that the last call to
+	 * getCollidingStates checked against, after reducing them.
+	 *
+	 * @return the number of rectangles checked against.
+	 */
+	public int getReducedObstacleCount() {
+		return reducedObstacleCount;
+	}
+
+	/**
+	 * Returns the number of states that the last call to getCollidingStates
+	 * checked against every obstacle, rather than skipping them as provably
+	 * clear.
+	 *
+	 * @return the number of states fully checked.
+	 */
+	public int getCollisionCheckCount() {
+		return collisionCheckCount;
+	}
+
+	/**
+	 * Returns the distance between the given config and the nearest of the
+	 * given obstacles.
+	 *
+	 * @param cfg
+	 *            the configuration to measure.
+	 * @param obstacles
+	 *            the obstacles to measure to.
+	 * @return the smallest distance from any boom to any obstacle, which is 0
+	 *         if they collide, or infinite if there are no obstacles.
+	 */
+	public double getClearance(ASVConfig cfg, List<Obstacle> obstacles) {
+		return getClearance(cfg, getLenientRects(obstacles));
+	}
+
+	/**
+	 * Returns the distance between the given config and the nearest of the
+	 * given rectangles, which should already have been shrunk by maxError.
+	 *
+	 * @param cfg
+	 *            the configuration to measure.
+	 * @param lenientRects
+	 *            the shrunken obstacle rectangles.
+	 * @return the smallest distance from any boom to any rectangle.
+	 */
+	private double getClearance(ASVConfig cfg, Rectangle2D[] lenientRects) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < cfg.getASVCount(); i++) {
+			minX = Math.min(minX, cfg.getX(i));
+			minY = Math.min(minY, cfg.getY(i));
+			maxX = Math.max(maxX, cfg.getX(i));
+			maxY = Math.max(maxY, cfg.getY(i));
+		}
+		double clearance = Double.POSITIVE_INFINITY;
+		for (Rectangle2D rect : lenientRects) {
+			// The distance to the bounding box of the ASVs is a lower bound.
+			double dx = Math.max(rect.getMinX() - maxX, minX - rect.getMaxX());
+			double dy = Math.max(rect.getMinY() - maxY, minY - rect.getMaxY());
+			if (Math.hypot(Math.max(dx, 0), Math.max(dy, 0)) >= clearance) {
+				continue;
+			}
+			for (int i = 1; i < cfg.getASVCount(); i++) {
+				clearance = Math.min(clearance, getDistance(rect,
+						cfg.getX(i - 1), cfg.getY(i - 1), cfg.getX(i),
+						cfg.getY(i)));
+				if (clearance == 0) {
+					return 0;
+				}
+			}
+		}
+		return clearance;
+	}
+
+	/**
+	 * Returns the distance between a rectangle and a line segment. If they
+	 * don't intersect, the nearest point of one of them is an end of the
+	 * segment or a corner of the rectangle.
+	 *
+	 * @param rect
+	 *            the rectangle.
+	 * @param x1
+	 *            the x-coordinate of the start of the segment.
+	 * @param y1
+	 *            the y-coordinate of the start of the segment.
+	 * @param x2
+	 *            the x-coordinate of the end of the segment.
+	 * @param y2
+	 *            the y-coordinate of the end of the segment.
+	 * @return the distance between them, or 0 if they intersect.
+	 */
+	private static double getDistance(Rectangle2D rect, double x1, double y1,
+			double x2, double y2) {
+		if (rect.intersectsLine(x1, y1, x2, y2)) {
+			return 0;
+		}
+		double distance = Math.min(getDistance(rect, x1, y1),
+				getDistance(rect, x2, y2));
+		distance = Math.min(distance, Line2D.ptSegDist(x1, y1, x2, y2,
+				rect.getMinX(), rect.getMinY()));
+		distance = Math.min(distance, Line2D.ptSegDist(x1, y1, x2, y2,
+				rect.getMaxX(), rect.getMinY()));
+		distance = Math.min(distance, Line2D.ptSegDist(x1, y1, x2, y2,
+				rect.getMinX(), rect.getMaxY()));
+		distance = Math.min(distance, Line2D.ptSegDist(x1, y1, x2, y2,
+				rect.getMaxX(), rect.getMaxY()));
+		return distance;
+	}
+
+	/**
+	 * Returns the distance from a point to the nearest point of a rectangle.
+	 *
+	 * @param rect
+	 *            the rectangle.
+	 * @param x
+	 *            the x-coordinate of the point.
+	 * @param y
+	 *            the y-coordinate of the point.
+	 * @return the distance, which is 0 if the point is inside.
+	 */
+	private static double getDistance(Rectangle2D rect, double x, double y) {
+		double dx = Math.max(0,
+				Math.max(rect.getMinX() - x, x - rect.getMaxX()));
+		double dy = Math.max(0,
+				Math.max(rect.getMinY() - y, y - rect.getMaxY()));
+		return Math.hypot(dx, dy);
+	}
+
 	/**
 	 * Returns whether the given config collides with any of the given
 	 * obstacles.
@@ -534,6 +891,56 @@ public class Tester {
 		return false;
 	}
 
+	/**
+	 * Returns the indices of the booms in the given configuration that
+	 * collide with any of the given obstacles; boom i joins ASV i to ASV i+1.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @param obstacles
+	 *            the obstacles to test against.
+	 * @return the indices of the colliding booms.
+	 */
+	public List<Integer> getCollidingBooms(ASVConfig cfg,
+			List<Obstacle> obstacles) {
+		Rectangle2D[] lenientRects = getLenientRects(obstacles);
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 1; i < cfg.getASVCount(); i++) {
+			for (Rectangle2D rect : lenientRects) {
+				if (rect.intersectsLine(cfg.getX(i - 1), cfg.getY(i - 1),
+						cfg.getX(i), cfg.getY(i))) {
+					result.add(i - 1);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the maximum error allowed by this Tester.
+	 *
+	 * @return the maximum error allowed by this Tester.
+	 */
+	public double getMaxError() {
+		return maxError;
+	}
+
+	/**
+	 * Returns the rectangles of the given obstacles, shrunk by maxError.
+	 *
+	 * @param obstacles
+	 *            the obstacles.
+	 * @return the rectangles of the given obstacles, shrunk by maxError.
+	 */
+	private Rectangle2D[] getLenientRects(List<Obstacle> obstacles) {
+		Rectangle2D[] rects = new Rectangle2D[obstacles.size()];
+		for (int i = 0; i < rects.length; i++) {
+			rects[i] = grow(obstacles.get(i).getRect(), -maxError);
+		}
+		return rects;
+	}
+
 	/**
 	 * Returns whether the given config collides with the given obstacle.
 	 *
@@ -544,11 +951,42 @@ public class Tester {
 	 * @return whether the given config collides with the given obstacle.
 	 */
 	public boolean hasCollision(ASVConfig cfg, Obstacle o) {
-		Rectangle2D lenientRect = grow(o.getRect(), -maxError);
-		List<Point2D> points = cfg.getASVPositions();
-		for (int i = 1; i < points.size(); i++) {
-			if (new Line2D.Double(points.get(i - 1), points.get(i))
-					.intersects(lenientRect)) {
+		return hasCollision(cfg, grow(o.getRect(), -maxError));
+	}
+
+	/**
+	 * Returns whether any boom of the given config intersects any of the given
+	 * rectangles, which should already have been shrunk by maxError.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @param lenientRects
+	 *            the shrunken obstacle rectangles.
+	 * @return whether any boom of the given config intersects a rectangle.
+	 */
+	private boolean hasCollision(ASVConfig cfg, Rectangle2D[] lenientRects) {
+		for (Rectangle2D rect : lenientRects) {
+			if (hasCollision(cfg, rect)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether any boom of the given config intersects the given
+	 * rectangle, which should already have been shrunk by maxError.
+	 *
+	 * @param cfg
+	 *            the configuration to test.
+	 * @param lenientRect
+	 *            the shrunken obstacle rectangle.
+	 * @return whether any boom of the given config intersects the rectangle.
+	 */
+	private boolean hasCollision(ASVConfig cfg, Rectangle2D lenientRect) {
+		for (int i = 1; i < cfg.getASVCount(); i++) {
+			if (lenientRect.intersectsLine(cfg.getX(i - 1), cfg.getY(i - 1),
+					cfg.getX(i), cfg.getY(i))) {
 				return true;
 			}
 		}
@@ -0,0 +1,312 @@
+package visualiser;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * A canvas that plays the animation by active rendering: a dedicated thread
+ * draws each frame into a BufferStrategy and shows it, pacing itself against
+ * System.nanoTime rather than waiting for Swing to repaint. The event dispatch
+ * thread is only told which frame is showing, so that the controls can
+ * follow along, and is not asked to draw anything.
+ *
+ * The canvas only draws the background and the current frame; validation
+ * highlights are drawn once playback is paused and the panel takes over.
+ */
+public class ActiveRenderer extends Canvas {
+	/** UID, as required by AWT */
+	private static final long serialVersionUID = -3409262158417460187L;
+
+	/** The time before a frame is due at which to stop sleeping and spin */
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+	private VisualisationPanel panel;
+	private PlaybackClock clock;
+
+	private volatile SceneRenderer scene;
+	private volatile BufferedImage background;
+	/** The motion trail to draw over the background, or null */
+	private volatile TrailLayer trail;
+	/** The solutions being compared, or null */
+	private volatile Comparison comparison;
+	/** The diagnostics to record frames in and draw, or null */
+	private volatile Diagnostics diagnostics;
+	private volatile FrameSource frames;
+	private volatile int maxFrameNumber;
+	/** The error in reading the frames when rendering started, or null */
+	private IOException startReadError;
+	/** The time between frames, in nanoseconds */
+	private volatile long framePeriod;
+
+	private Thread renderThread;
+	/** Counts the times rendering has been started */
+	private volatile int runNumber = 0;
+	private volatile boolean running = false;
+	/** The last frame drawn */
+	private volatile int frameNumber;
+	/** Whether the event dispatch thread has yet to hear of the last frame */
+	private AtomicBoolean frameUpdatePending = new AtomicBoolean(false);
+
+	/** Tells the panel which frame is showing */
+	private Runnable frameUpdate = new Runnable() {
+		@Override
+		public void run() {
+			frameUpdatePending.set(false);
+			if (running) {
+				panel.activeFrameShown(frameNumber);
+			}
+		}
+	};
+
+
+	public ActiveRenderer(VisualisationPanel panel, PlaybackClock clock) {
+		this.panel = panel;
+		this.clock = clock;
+		setIgnoreRepaint(true);
+		setBackground(Color.WHITE);
+	}
+
+	public void setFramerate(int framerate) {
+		framePeriod = TimeUnit.SECONDS.toNanos(1) / framerate;
+	}
+
+	/**
+	 * Sets the scene to draw and its pre-rendered background; this may be
+	 * called while the renderer is running, e.g. after a resize.
+	 */
+	public void setScene(SceneRenderer scene, BufferedImage background) {
+		this.scene = scene;
+		this.background = background;
+	}
+
+	/**
+	 * Sets the motion trail to draw behind the frames, or null for none; the
+	 * panel must not use the trail while the renderer is running.
+	 */
+	public void setTrail(TrailLayer trail) {
+		this.trail = trail;
+	}
+
+	/**
+	 * Sets the solutions to draw in sync, or null to draw the frames alone.
+	 */
+	public void setComparison(Comparison comparison) {
+		this.comparison = comparison;
+	}
+
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Sets the last frame to play up to; this may be called while the
+	 * renderer is running, once frames have been appended to the source.
+	 */
+	public void setMaxFrameNumber(int maxFrameNumber) {
+		this.maxFrameNumber = maxFrameNumber;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Starts rendering the given frames from the playback clock. The canvas
+	 * must be showing.
+	 */
+	public void start(FrameSource frames, int maxFrameNumber) {
+		stop();
+		this.frames = frames;
+		this.maxFrameNumber = maxFrameNumber;
+		startReadError = getReadError();
+		frameNumber = clock.getFrame();
+		createBufferStrategy(2);
+		runNumber++;
+		running = true;
+		renderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				renderLoop();
+			}
+		}, "active-renderer");
+		renderThread.setDaemon(true);
+		renderThread.setPriority(Thread.NORM_PRIORITY + 1);
+		renderThread.start();
+	}
+
+	/**
+	 * Stops rendering, and waits for the render thread to finish so that the
+	 * frames are no longer in use.
+	 */
+	public void stop() {
+		running = false;
+		if (renderThread == null) {
+			return;
+		}
+		renderThread.interrupt();
+		try {
+			renderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		renderThread = null;
+	}
+
+	private void renderLoop() {
+		try {
+			renderFrames();
+		} catch (RuntimeException e) {
+			if (running) {
+				finish();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the render loop from within, and tells the panel on the event
+	 * dispatch thread, unless rendering has been restarted by then.
+	 */
+	private void finish() {
+		running = false;
+		final int finishedRun = runNumber;
+		final int lastFrame = frameNumber;
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				if (runNumber == finishedRun && !running) {
+					panel.activePlaybackFinished(lastFrame);
+				}
+			}
+		});
+	}
+
+	private void renderFrames() {
+		long due = System.nanoTime();
+		while (running) {
+			int frame = clock.getFrame();
+			boolean finished = frame >= maxFrameNumber;
+			if (finished) {
+				frame = maxFrameNumber;
+			}
+			render(frame);
+			frameNumber = frame;
+			if (getReadError() != startReadError) {
+				// Let the panel stop playback and report the error.
+				finished = true;
+			}
+			if (finished) {
+				finish();
+				return;
+			}
+			if (frameUpdatePending.compareAndSet(false, true)) {
+				SwingUtilities.invokeLater(frameUpdate);
+			}
+			due += framePeriod;
+			long now = System.nanoTime();
+			if (due < now - framePeriod) {
+				// Too far behind to catch up; drop the missed frames.
+				Diagnostics diagnostics = this.diagnostics;
+				if (diagnostics != null) {
+					diagnostics.ticksDropped((int) ((now - due) / framePeriod));
+				}
+				due = now;
+			}
+			waitUntil(due);
+		}
+	}
+
+	/**
+	 * Returns the first error in reading the frames being drawn, or null if
+	 * there has been none.
+	 */
+	private IOException getReadError() {
+		Comparison comparison = this.comparison;
+		if (comparison != null) {
+			return comparison.getReadError();
+		}
+		return frames.getReadError();
+	}
+
+	/**
+	 * Sleeps until shortly before the given time, then spins until it
+	 * arrives, since sleeping alone overshoots by up to a millisecond.
+	 */
+	private void waitUntil(long due) {
+		long remaining;
+		while (running && (remaining = due - System.nanoTime()) > 0) {
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_NANOS);
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	private void render(int frame) {
+		BufferStrategy strategy = getBufferStrategy();
+		SceneRenderer scene = this.scene;
+		BufferedImage background = this.background;
+		TrailLayer trail = this.trail;
+		Comparison comparison = this.comparison;
+		Diagnostics diagnostics = this.diagnostics;
+		if (strategy == null || scene == null) {
+			return;
+		}
+		long renderStart = System.nanoTime();
+		if (comparison != null) {
+			comparison.frameShown(frame);
+		} else {
+			frames.frameShown(frame);
+		}
+		if (trail != null) {
+			trail.update(scene, background, frames, frame, null);
+			background = trail.getImage();
+		}
+		do {
+			do {
+				Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+				try {
+					g2.drawImage(background, 0, 0, null);
+					g2.setStroke(SceneRenderer.STATE_STROKE);
+					if (comparison != null) {
+						comparison.paintFrame(g2, scene, frame);
+						comparison.paintLegend(g2);
+					} else {
+						g2.setColor(Color.blue);
+						scene.paintFrame(g2, frames, frame);
+					}
+					if (diagnostics != null) {
+						diagnostics.framePainted(System.nanoTime()
+								- renderStart, scene.takeShapeCount());
+						diagnostics.paint(g2, getWidth());
+					}
+				} finally {
+					g2.dispose();
+				}
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	@Override
+	public void paint(Graphics g) {
+		// Everything is drawn by the render thread.
+	}
+
+	@Override
+	public void update(Graphics g) {
+	}
+}
@@ -0,0 +1,179 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import problem.ProblemSpec;
+
+/**
+ * Several solutions to the same problem, played in sync on a normalised
+ * timeline so that they all start and finish together.
+ *
+ * The timeline has a frame for each frame of the longest solution, which is
+ * the reference: the slider, costs, validation, overview and trail all follow
+ * it, and every other solution shows the frame at the same fraction of its
+ * own length. Each solution is drawn in its own colour.
+ */
+public class Comparison {
+	/** The colours of the solutions, reused in turn if there are more */
+	private static final Color[] COLORS = { Color.blue, new Color(0, 150, 0),
+			new Color(150, 0, 200), new Color(0, 170, 200),
+			new Color(140, 90, 30), new Color(200, 170, 0), Color.darkGray };
+	/** The margin around the legend, in pixels */
+	private static final int LEGEND_MARGIN = 6;
+	/** The length of the line next to each name in the legend, in pixels */
+	private static final int LEGEND_LINE = 16;
+
+	private List<String> names;
+	private List<ProblemSpec> specs;
+	private List<FrameSource> frames;
+	/** The index of the longest solution */
+	private int reference = 0;
+
+	/**
+	 * Constructs a comparison of the given solutions.
+	 *
+	 * @param names
+	 *            the names of the solutions, for the legend.
+	 * @param specs
+	 *            the problem spec for each solution, which holds the solution
+	 *            path if it was loaded into memory.
+	 * @param frames
+	 *            the frames of each solution.
+	 */
+	public Comparison(List<String> names, List<ProblemSpec> specs,
+			List<FrameSource> frames) {
+		this.names = new ArrayList<String>(names);
+		this.specs = new ArrayList<ProblemSpec>(specs);
+		this.frames = new ArrayList<FrameSource>(frames);
+		for (int i = 1; i < frames.size(); i++) {
+			if (frames.get(i).getFrameCount() > frames.get(reference)
+					.getFrameCount()) {
+				reference = i;
+			}
+		}
+	}
+
+	public int getSolutionCount() {
+		return frames.size();
+	}
+
+	public String getName(int solution) {
+		return names.get(solution);
+	}
+
+	public Color getColor(int solution) {
+		return COLORS[solution % COLORS.length];
+	}
+
+	public FrameSource getFrames(int solution) {
+		return frames.get(solution);
+	}
+
+	/**
+	 * Returns the problem spec of the reference solution.
+	 */
+	public ProblemSpec getReferenceSpec() {
+		return specs.get(reference);
+	}
+
+	/**
+	 * Returns the frames of the reference solution, whose frame numbers are
+	 * those of the timeline.
+	 */
+	public FrameSource getReferenceFrames() {
+		return frames.get(reference);
+	}
+
+	/**
+	 * Returns the frame of the given solution at the same fraction of the way
+	 * through as the given frame of the timeline.
+	 */
+	public int getFrame(int solution, int timelineFrame) {
+		int length = frames.get(reference).getFrameCount();
+		int count = frames.get(solution).getFrameCount();
+		if (length <= 1) {
+			return 0;
+		}
+		long scaled = (long) timelineFrame * (count - 1);
+		return (int) ((scaled + (length - 1) / 2) / (length - 1));
+	}
+
+	/**
+	 * Draws every solution at the given frame of the timeline, each in its
+	 * own colour, with the current stroke; the first solution is drawn on
+	 * top.
+	 */
+	public void paintFrame(Graphics2D g2, SceneRenderer scene,
+			int timelineFrame) {
+		for (int i = frames.size() - 1; i >= 0; i--) {
+			g2.setColor(getColor(i));
+			scene.paintFrame(g2, frames.get(i), getFrame(i, timelineFrame));
+		}
+	}
+
+	/**
+	 * Draws a key to the colours of the solutions in the top left corner.
+	 */
+	public void paintLegend(Graphics2D g2) {
+		FontMetrics metrics = g2.getFontMetrics();
+		int lineHeight = metrics.getHeight();
+		int width = 0;
+		for (String name : names) {
+			width = Math.max(width, metrics.stringWidth(name));
+		}
+		width += LEGEND_LINE + LEGEND_MARGIN * 3;
+		int height = lineHeight * names.size() + LEGEND_MARGIN * 2;
+		g2.setColor(Color.white);
+		g2.fillRect(0, 0, width, height);
+		g2.setColor(Color.gray);
+		g2.drawRect(0, 0, width, height);
+		for (int i = 0; i < names.size(); i++) {
+			int y = LEGEND_MARGIN + lineHeight * i;
+			int middle = y + lineHeight / 2;
+			g2.setColor(getColor(i));
+			g2.drawLine(LEGEND_MARGIN, middle, LEGEND_MARGIN + LEGEND_LINE,
+					middle);
+			g2.setColor(Color.black);
+			g2.drawString(names.get(i), LEGEND_MARGIN * 2 + LEGEND_LINE, y
+					+ metrics.getAscent());
+		}
+	}
+
+	/**
+	 * Tells the frames of each solution which of its frames is being shown
+	 * at the given timeline frame.
+	 */
+	public void frameShown(int timelineFrame) {
+		for (int i = 0; i < frames.size(); i++) {
+			frames.get(i).frameShown(getFrame(i, timelineFrame));
+		}
+	}
+
+	/**
+	 * Returns the first error in reading the frames of any solution, or null
+	 * if there has been none.
+	 */
+	public IOException getReadError() {
+		for (FrameSource source : frames) {
+			IOException error = source.getReadError();
+			if (error != null) {
+				return error;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Releases the frames of every solution.
+	 */
+	public void close() {
+		for (FrameSource source : frames) {
+			source.close();
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package visualiser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingWorker;
+
+import problem.PathCodec;
+import problem.ProblemSpec;
+
+/**
+ * Loads several solutions to the problem being displayed in the background,
+ * for comparison. The solutions are loaded in parallel, each into its own
+ * copy of the problem spec, which shares the parsed problem with the
+ * original; progress is reported as the percentage of solutions loaded. As
+ * with a single solution, a text file too large to hold in memory is opened
+ * as a DiskFrameSource.
+ */
+public class ComparisonWorker extends SwingWorker<Comparison, Void> {
+	/**
+	 * Receives the result of a load on the event dispatch thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called when every solution has been loaded successfully; the
+		 * listener is responsible for closing the comparison.
+		 */
+		void comparisonLoaded(ComparisonWorker worker, Comparison comparison);
+
+		/**
+		 * Called when a solution could not be loaded.
+		 */
+		void comparisonFailed(ComparisonWorker worker, File file,
+				IOException e);
+	}
+
+	/** The pool on which the solutions are loaded */
+	private static final ExecutorService LOAD_POOL = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "solution-loader");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+
+	private Listener listener;
+	private ProblemSpec problem;
+	private List<File> files;
+	/** The file that failed to load, if any */
+	private volatile File failedFile;
+	/** The loaded comparison, so that it can be closed if cancelled */
+	private volatile Comparison comparison;
+	/** Guards publishing comparison against closing it on cancel */
+	private final Object comparisonLock = new Object();
+	/** Set once loading has failed, so loads not yet started are skipped */
+	private volatile boolean abandoned;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param listener
+	 *            the listener to notify when loading finishes.
+	 * @param problem
+	 *            the problem the solutions are for; it is copied rather than
+	 *            modified.
+	 * @param files
+	 *            the solution files to load.
+	 */
+	public ComparisonWorker(Listener listener, ProblemSpec problem,
+			List<File> files) {
+		this.listener = listener;
+		this.problem = problem;
+		this.files = new ArrayList<File>(files);
+	}
+
+	public List<File> getFiles() {
+		return files;
+	}
+
+	@Override
+	protected Comparison doInBackground() throws IOException,
+			InterruptedException {
+		int n = files.size();
+		ProblemSpec[] specs = new ProblemSpec[n];
+		final FrameSource[] frames = new FrameSource[n];
+		CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(
+				LOAD_POOL);
+		Map<Future<Integer>, Integer> tasks = new HashMap<Future<Integer>, Integer>();
+		for (int i = 0; i < n; i++) {
+			final int index = i;
+			final ProblemSpec spec = new ProblemSpec(problem);
+			specs[i] = spec;
+			tasks.put(completion.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws IOException {
+					if (!abandoned) {
+						frames[index] = load(spec, files.get(index));
+					}
+					return index;
+				}
+			}), i);
+		}
+		boolean succeeded = false;
+		int taken = 0;
+		try {
+			while (taken < n) {
+				Future<Integer> task = completion.take();
+				taken++;
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					failedFile = files.get(tasks.get(task));
+					Throwable cause = e.getCause();
+					throw (cause instanceof IOException) ? (IOException) cause
+							: new IOException(cause);
+				}
+				if (isCancelled()) {
+					throw new InterruptedIOException("Loading cancelled");
+				}
+				setProgress(taken * 100 / n);
+			}
+			succeeded = true;
+		} finally {
+			if (!succeeded) {
+				// Skip the loads not yet started, and wait for the rest to
+				// finish rather than cancelling them, so that everything they
+				// opened is in frames when it is released.
+				abandoned = true;
+				boolean interrupted = false;
+				while (taken < n) {
+					try {
+						completion.take();
+						taken++;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				for (FrameSource source : frames) {
+					if (source != null) {
+						source.close();
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		List<String> names = new ArrayList<String>();
+		for (File file : files) {
+			names.add(file.getName());
+		}
+		Comparison result = new Comparison(names, Arrays.asList(specs),
+				Arrays.asList(frames));
+		// A cancel may already have run done(), which would then never see
+		// the comparison, so publish it under the lock.
+		synchronized (comparisonLock) {
+			if (isCancelled()) {
+				result.close();
+				throw new InterruptedIOException("Loading cancelled");
+			}
+			comparison = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Loads a solution into the given spec, and returns its frames.
+	 */
+	private FrameSource load(ProblemSpec spec, File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			if (file.length() >= LoadWorker.DISK_THRESHOLD
+					&& !PathCodec.isCompressed(input)) {
+				spec.clearSolution();
+				return DiskFrameSource.open(file, spec.getASVCount(), input);
+			}
+			spec.loadSolution(input);
+			return new FrameStore(spec);
+		} finally {
+			input.close();
+		}
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			synchronized (comparisonLock) {
+				if (comparison != null) {
+					comparison.close();
+				}
+			}
+			return;
+		}
+		try {
+			listener.comparisonLoaded(this, get());
+		} catch (InterruptedException e) {
+			// Nothing was loaded.
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			IOException error = (cause instanceof IOException) ? (IOException) cause
+					: new IOException(cause);
+			listener.comparisonFailed(this, failedFile, error);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each frame takes to paint, how many shapes it draws, the
+ * heap usage and how many animation ticks are dropped, and draws a summary
+ * as an overlay; the recent history can be saved as CSV.
+ *
+ * Frames may be recorded from the active renderer's thread as well as the
+ * event dispatch thread, so the methods are synchronized.
+ */
+public class Diagnostics {
+	/** The number of frames kept for saving */
+	public static final int HISTORY_SIZE = 4096;
+	/** The number of recent frames the paint time percentiles cover */
+	private static final int PERCENTILE_FRAMES = 256;
+	/** The period over which the effective framerate is measured */
+	private static final long FPS_WINDOW = TimeUnit.SECONDS.toNanos(1);
+	/** The margin inside the overlay, in pixels */
+	private static final int MARGIN = 4;
+	private static final Color BACKGROUND_COLOR = new Color(0, 0, 0, 160);
+	private static final long MEGABYTE = 1 << 20;
+
+	private long startTime = System.nanoTime();
+	/** The time each frame finished painting, in ns since startTime */
+	private long[] finishTimes = new long[HISTORY_SIZE];
+	/** The time taken to paint each frame, in ns */
+	private long[] paintTimes = new long[HISTORY_SIZE];
+	/** The number of shapes drawn in each frame */
+	private int[] shapeCounts = new int[HISTORY_SIZE];
+	/** The heap in use after each frame, in bytes */
+	private long[] heapUsed = new long[HISTORY_SIZE];
+	/** The number of ticks dropped up to each frame */
+	private int[] droppedCounts = new int[HISTORY_SIZE];
+	/** The number of frames recorded, including those no longer kept */
+	private int frameCount = 0;
+
+	private int droppedTicks = 0;
+	/** The time of the last animation tick, or -1 */
+	private long lastTick = -1;
+	private int targetFramerate;
+
+	/** Buffer for sorting the paint times */
+	private long[] sorted = new long[PERCENTILE_FRAMES];
+	/** The area covered by the overlay when it was last drawn */
+	private Rectangle overlayBounds = new Rectangle();
+
+	public synchronized void setTargetFramerate(int targetFramerate) {
+		this.targetFramerate = targetFramerate;
+	}
+
+	/**
+	 * Called when playback starts, so that the pause before it isn't counted
+	 * as dropped ticks.
+	 */
+	public synchronized void playbackStarted() {
+		lastTick = -1;
+	}
+
+	/**
+	 * Called on each tick of the animation timer; ticks that were due since
+	 * the last one but never came are counted as dropped.
+	 *
+	 * @param period
+	 *            the time between ticks, in ns.
+	 */
+	public synchronized void tick(long period) {
+		long now = System.nanoTime();
+		if (lastTick >= 0 && period > 0) {
+			droppedTicks += Math.max(0, (now - lastTick + period / 2) / period
+					- 1);
+		}
+		lastTick = now;
+	}
+
+	/**
+	 * Records ticks that were skipped to catch up.
+	 */
+	public synchronized void ticksDropped(int count) {
+		droppedTicks += count;
+	}
+
+	/**
+	 * Records a frame.
+	 *
+	 * @param paintTime
+	 *            the time taken to paint the frame, in ns.
+	 * @param shapeCount
+	 *            the number of lines and circles drawn.
+	 */
+	public synchronized void framePainted(long paintTime, int shapeCount) {
+		int i = frameCount % HISTORY_SIZE;
+		Runtime runtime = Runtime.getRuntime();
+		finishTimes[i] = System.nanoTime() - startTime;
+		paintTimes[i] = paintTime;
+		shapeCounts[i] = shapeCount;
+		heapUsed[i] = runtime.totalMemory() - runtime.freeMemory();
+		droppedCounts[i] = droppedTicks;
+		frameCount++;
+	}
+
+	/**
+	 * Returns the area covered by the overlay when it was last drawn, which
+	 * must be repainted along with each frame.
+	 */
+	public synchronized Rectangle getOverlayBounds() {
+		return new Rectangle(overlayBounds);
+	}
+
+	/**
+	 * Draws the overlay in the top right corner of an area of the given
+	 * width.
+	 */
+	public synchronized void paint(Graphics2D g2, int width) {
+		Runtime runtime = Runtime.getRuntime();
+		int last = (frameCount - 1) % HISTORY_SIZE;
+		String[] lines = {
+				String.format("paint ms: p50 %.2f p95 %.2f p99 %.2f max %.2f",
+						getPaintTime(0.5), getPaintTime(0.95),
+						getPaintTime(0.99), getPaintTime(1)),
+				String.format("fps: %.1f of %d, dropped ticks: %d",
+						getFramerate(), targetFramerate, droppedTicks),
+				String.format("heap: %d of %d MB",
+						(runtime.totalMemory() - runtime.freeMemory())
+								/ MEGABYTE, runtime.maxMemory() / MEGABYTE),
+				String.format("shapes: %d",
+						frameCount == 0 ? 0 : shapeCounts[last]) };
+		FontMetrics metrics = g2.getFontMetrics();
+		int textWidth = 0;
+		for (String line : lines) {
+			textWidth = Math.max(textWidth, metrics.stringWidth(line));
+		}
+		int boxWidth = textWidth + MARGIN * 2;
+		int boxHeight = metrics.getHeight() * lines.length + MARGIN * 2;
+		overlayBounds.setBounds(width - boxWidth, 0, boxWidth, boxHeight);
+		g2.setColor(BACKGROUND_COLOR);
+		g2.fill(overlayBounds);
+		g2.setColor(Color.white);
+		int y = MARGIN + metrics.getAscent();
+		for (String line : lines) {
+			g2.drawString(line, width - boxWidth + MARGIN, y);
+			y += metrics.getHeight();
+		}
+	}
+
+	/**
+	 * Returns the given percentile of the recent paint times, in ms.
+	 */
+	private double getPaintTime(double percentile) {
+		int n = Math.min(frameCount, PERCENTILE_FRAMES);
+		if (n == 0) {
+			return 0;
+		}
+		for (int k = 0; k < n; k++) {
+			sorted[k] = paintTimes[(frameCount - 1 - k) % HISTORY_SIZE];
+		}
+		Arrays.sort(sorted, 0, n);
+		int index = (int) Math.ceil(percentile * n) - 1;
+		return sorted[Math.max(index, 0)] / 1e6;
+	}
+
+	/**
+	 * Returns the number of frames painted per second over the last second.
+	 */
+	private double getFramerate() {
+		long now = System.nanoTime() - startTime;
+		int n = Math.min(frameCount, HISTORY_SIZE);
+		int count = 0;
+		long first = now;
+		for (int k = 0; k < n; k++) {
+			long time = finishTimes[(frameCount - 1 - k) % HISTORY_SIZE];
+			if (now - time > FPS_WINDOW) {
+				break;
+			}
+			first = time;
+			count++;
+		}
+		if (count < 2) {
+			return 0;
+		}
+		return (count - 1) * 1e9 / (now - first);
+	}
+
+	/**
+	 * Saves the kept frames to a CSV file, with a header row.
+	 */
+	public void save(File file) throws IOException {
+		Writer output = new BufferedWriter(new FileWriter(file));
+		try {
+			write(output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Writes the kept frames as CSV, with a header row; times are in
+	 * microseconds.
+	 */
+	public synchronized void write(Writer output) throws IOException {
+		output.write("frame,time_us,paint_us,shapes,heap_bytes,dropped_ticks\n");
+		int first = Math.max(0, frameCount - HISTORY_SIZE);
+		for (int f = first; f < frameCount; f++) {
+			int i = f % HISTORY_SIZE;
+			output.write(f + "," + finishTimes[i] / 1000 + ","
+					+ paintTimes[i] / 1000 + "," + shapeCounts[i] + ","
+					+ heapUsed[i] + "," + droppedCounts[i] + "\n");
+		}
+	}
+}
@@ -0,0 +1,693 @@
+package visualiser;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import problem.ASVConfig;
+import problem.CompensatedSum;
+
+/**
+ * Reads the frames of a solution text file from disk as they are needed, so
+ * that solutions too large to hold in memory can still be played back.
+ *
+ * On first opening a file, it is scanned once to build an index holding the
+ * byte offset, starting cost and bounding box of each chunk of frames; the
+ * index is saved alongside the file, and reused as long as the file is
+ * unchanged. Decoded chunks are kept in a window of fixed size, which evicts
+ * the least recently used chunk when full, and the chunks just beyond the one
+ * being shown are decoded ahead of time in the direction playback is moving.
+ */
+public class DiskFrameSource implements FrameSource {
+	/** The suffix added to the solution file name to name its index */
+	public static final String INDEX_SUFFIX = ".idx";
+	/** Magic number identifying an index file ("ASVI") */
+	private static final int INDEX_MAGIC = 0x41535649;
+	/** The version of the index format */
+	private static final int INDEX_VERSION = 1;
+	/** The memory allowed for decoded chunks, in bytes */
+	private static final long WINDOW_BYTES = 32L << 20;
+	/** The number of chunks decoded ahead of the one being shown */
+	private static final int PREFETCH_CHUNKS = 4;
+
+	/** The thread on which chunks are prefetched */
+	private static final ExecutorService PREFETCH_EXECUTOR = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "frame-prefetcher");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	/**
+	 * The decoded frames of one chunk.
+	 */
+	private static class Chunk {
+		/** The x- and y-coordinates of every ASV in every frame */
+		private double[] coords;
+		/** The cumulative cost up to each frame */
+		private double[] cumulativeCosts;
+	}
+
+	private File file;
+	private FileChannel channel;
+	private int asvCount;
+	private int frameCount;
+	/**
+	 * The offset of the first line of each chunk, followed by the offset
+	 * after the last line
+	 */
+	private long[] chunkOffsets;
+	/** The cumulative cost up to the first frame of each chunk */
+	private double[] chunkCosts;
+	/**
+	 * The bounding box of every ASV in each chunk, as minX, minY, maxX, maxY
+	 */
+	private float[] chunkBounds;
+
+	/** The decoded chunks, in order of use */
+	private Map<Integer, Chunk> window;
+	/** The chunks waiting to be prefetched */
+	private Set<Integer> pendingChunks = new HashSet<Integer>();
+	/** The chunk of the frame being shown; guarded by window */
+	private int lastChunk = -1;
+	/** The direction in which playback is moving, 1 or -1; guarded by window */
+	private int direction = 1;
+	/** The first error in reading a chunk, or null if there has been none */
+	private volatile IOException readError;
+	private volatile boolean closed = false;
+
+	private DiskFrameSource(File file, int asvCount) {
+		this.file = file;
+		this.asvCount = asvCount;
+		long chunkBytes = (long) CHUNK_SIZE * (asvCount * 2 + 1) * 8;
+		final int capacity = (int) Math.max(PREFETCH_CHUNKS * 2 + 1,
+				WINDOW_BYTES / chunkBytes);
+		window = new LinkedHashMap<Integer, Chunk>(capacity, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Chunk> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Opens a solution text file, reading its index if it has an up-to-date
+	 * one, or building the index from the given stream and saving it
+	 * otherwise.
+	 *
+	 * @param file
+	 *            the solution file.
+	 * @param asvCount
+	 *            the number of ASVs in each state.
+	 * @param input
+	 *            a stream of the file's contents, which is only read if the
+	 *            index needs to be built; it is not closed.
+	 * @return the frame source.
+	 * @throws IOException
+	 *             if the file cannot be read or doesn't meet the assignment
+	 *             specifications.
+	 */
+	public static DiskFrameSource open(File file, int asvCount,
+			InputStream input) throws IOException {
+		DiskFrameSource source = new DiskFrameSource(file, asvCount);
+		File indexFile = getIndexFile(file);
+		if (!source.readIndex(indexFile)) {
+			source.buildIndex(input);
+			try {
+				source.writeIndex(indexFile);
+			} catch (IOException e) {
+				// The index will just be rebuilt next time.
+				indexFile.delete();
+			}
+		}
+		source.channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		return source;
+	}
+
+	/**
+	 * Returns the file in which the index for the given solution file is
+	 * saved.
+	 */
+	public static File getIndexFile(File file) {
+		return new File(file.getPath() + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Reads the index from the given file, if it exists and matches the
+	 * solution file.
+	 *
+	 * @return whether the index was read.
+	 */
+	private boolean readIndex(File indexFile) {
+		if (!indexFile.isFile()) {
+			return false;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(indexFile)));
+			try {
+				if (in.readInt() != INDEX_MAGIC
+						|| in.readInt() != INDEX_VERSION
+						|| in.readLong() != file.length()
+						|| in.readLong() != file.lastModified()
+						|| in.readInt() != asvCount) {
+					return false;
+				}
+				frameCount = in.readInt();
+				int chunkCount = getChunkCount();
+				chunkOffsets = new long[chunkCount + 1];
+				chunkCosts = new double[chunkCount];
+				chunkBounds = new float[chunkCount * 4];
+				for (int c = 0; c < chunkCount; c++) {
+					chunkOffsets[c] = in.readLong();
+					chunkCosts[c] = in.readDouble();
+					for (int i = 0; i < 4; i++) {
+						chunkBounds[c * 4 + i] = in.readFloat();
+					}
+				}
+				chunkOffsets[chunkCount] = in.readLong();
+				return true;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private void writeIndex(File indexFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(indexFile)));
+		try {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeLong(file.length());
+			out.writeLong(file.lastModified());
+			out.writeInt(asvCount);
+			out.writeInt(frameCount);
+			for (int c = 0; c < getChunkCount(); c++) {
+				out.writeLong(chunkOffsets[c]);
+				out.writeDouble(chunkCosts[c]);
+				for (int i = 0; i < 4; i++) {
+					out.writeFloat(chunkBounds[c * 4 + i]);
+				}
+			}
+			out.writeLong(chunkOffsets[getChunkCount()]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Scans the whole file to find the offset, starting cost and bounding box
+	 * of each chunk.
+	 */
+	private void buildIndex(InputStream stream) throws IOException {
+		LineReader input = new LineReader(stream);
+		if (!input.nextLine()) {
+			throw new IOException("Line 1 expected, but file ended.");
+		}
+		double[] header = new double[2];
+		if (input.parse(header) < 1) {
+			throw new IOException("Not enough tokens on line 1");
+		}
+		long pathLength = (long) header[0] + 1;
+		if (pathLength < 1 || pathLength > Integer.MAX_VALUE) {
+			throw new IOException("Invalid path length on line 1");
+		}
+		// Each state needs at least one character per coordinate, a separator
+		// after each and a line break, so a header claiming more states than
+		// the file can hold is rejected before the index is allocated.
+		if (pathLength > file.length() / (asvCount * 4L)) {
+			throw new IOException(String.format(
+					"Path length %d on line 1 is too long for the file",
+					pathLength - 1));
+		}
+		frameCount = (int) pathLength;
+		int chunkCount = getChunkCount();
+		chunkOffsets = new long[chunkCount + 1];
+		chunkCosts = new double[chunkCount];
+		chunkBounds = new float[chunkCount * 4];
+		double[] coords = new double[asvCount * 2];
+		double[] previous = new double[asvCount * 2];
+		CompensatedSum cost = new CompensatedSum();
+		for (int f = 0; f < frameCount; f++) {
+			int c = f / CHUNK_SIZE;
+			if (f % CHUNK_SIZE == 0) {
+				chunkOffsets[c] = input.getOffset();
+				chunkBounds[c * 4] = Float.POSITIVE_INFINITY;
+				chunkBounds[c * 4 + 1] = Float.POSITIVE_INFINITY;
+				chunkBounds[c * 4 + 2] = Float.NEGATIVE_INFINITY;
+				chunkBounds[c * 4 + 3] = Float.NEGATIVE_INFINITY;
+			}
+			if (!input.nextLine()) {
+				throw new IOException(String.format(
+						"Line %d expected, but file ended.", f + 2));
+			}
+			if (input.parse(coords) < coords.length) {
+				throw new IOException(String.format(
+						"Not enough tokens on line %d", f + 2));
+			}
+			for (int i = 0; i < asvCount; i++) {
+				float x = (float) coords[i * 2];
+				float y = (float) coords[i * 2 + 1];
+				chunkBounds[c * 4] = Math.min(chunkBounds[c * 4], x);
+				chunkBounds[c * 4 + 1] = Math.min(chunkBounds[c * 4 + 1], y);
+				chunkBounds[c * 4 + 2] = Math.max(chunkBounds[c * 4 + 2], x);
+				chunkBounds[c * 4 + 3] = Math.max(chunkBounds[c * 4 + 3], y);
+			}
+			if (f > 0) {
+				cost.add(distance(previous, coords));
+			}
+			if (f % CHUNK_SIZE == 0) {
+				chunkCosts[c] = cost.getValue();
+			}
+			double[] temp = previous;
+			previous = coords;
+			coords = temp;
+		}
+		chunkOffsets[chunkCount] = input.getOffset();
+	}
+
+	/**
+	 * Returns the total distance moved by the ASVs between two states given
+	 * as coordinate arrays.
+	 */
+	private static double distance(double[] from, double[] to) {
+		double total = 0;
+		for (int k = 0; k < from.length; k += 2) {
+			double dx = to[k] - from[k];
+			double dy = to[k + 1] - from[k + 1];
+			total += Math.sqrt(dx * dx + dy * dy);
+		}
+		return total;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public int getASVCount() {
+		return asvCount;
+	}
+
+	@Override
+	public float getX(int frame, int asvNo) {
+		Chunk chunk = getChunk(frame / CHUNK_SIZE);
+		return (float) chunk.coords[((frame % CHUNK_SIZE) * asvCount + asvNo) * 2];
+	}
+
+	@Override
+	public float getY(int frame, int asvNo) {
+		Chunk chunk = getChunk(frame / CHUNK_SIZE);
+		return (float) chunk.coords[((frame % CHUNK_SIZE) * asvCount + asvNo) * 2 + 1];
+	}
+
+	@Override
+	public ASVConfig getState(int frame) {
+		Chunk chunk = getChunk(frame / CHUNK_SIZE);
+		int k = (frame % CHUNK_SIZE) * asvCount * 2;
+		return new ASVConfig(Arrays.copyOfRange(chunk.coords, k, k + asvCount
+				* 2));
+	}
+
+	@Override
+	public double getCumulativeCost(int frame) {
+		return getChunk(frame / CHUNK_SIZE).cumulativeCosts[frame % CHUNK_SIZE];
+	}
+
+	@Override
+	public int getChunkCount() {
+		return (frameCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	@Override
+	public boolean chunkIntersects(int chunk, Rectangle2D area) {
+		return chunkBounds[chunk * 4] <= area.getMaxX()
+				&& chunkBounds[chunk * 4 + 1] <= area.getMaxY()
+				&& chunkBounds[chunk * 4 + 2] >= area.getMinX()
+				&& chunkBounds[chunk * 4 + 3] >= area.getMinY();
+	}
+
+	@Override
+	public int update() {
+		return 0;
+	}
+
+	@Override
+	public void frameShown(int frame) {
+		int c = frame / CHUNK_SIZE;
+		int direction;
+		synchronized (window) {
+			if (c == lastChunk) {
+				return;
+			}
+			if (lastChunk >= 0) {
+				this.direction = c > lastChunk ? 1 : -1;
+			}
+			lastChunk = c;
+			direction = this.direction;
+		}
+		prefetch(c, direction);
+	}
+
+	@Override
+	public IOException getReadError() {
+		return readError;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		synchronized (window) {
+			window.clear();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Nothing more can be done.
+		}
+	}
+
+	/**
+	 * Reads the states of the frames [start, end) straight from the file,
+	 * without keeping them in the window; this is meant for scanning through
+	 * the solution in the background.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public List<ASVConfig> readStates(int start, int end) throws IOException {
+		List<ASVConfig> states = new ArrayList<ASVConfig>(end - start);
+		int firstChunk = start / CHUNK_SIZE;
+		int lastChunk = (end - 1) / CHUNK_SIZE;
+		LineReader input = new LineReader(readRange(chunkOffsets[firstChunk],
+				chunkOffsets[lastChunk + 1]));
+		for (int f = firstChunk * CHUNK_SIZE; f < end; f++) {
+			if (f < start) {
+				readFrame(input, f, null);
+			} else {
+				double[] coords = new double[asvCount * 2];
+				readFrame(input, f, coords);
+				states.add(new ASVConfig(coords));
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * Reads the line of the given frame, and parses its coordinates into the
+	 * given array unless it is null. The index only records where each chunk
+	 * starts, so this is where a file that has changed since is detected.
+	 *
+	 * @throws IOException
+	 *             if the file ends before the frame, or its line has too few
+	 *             numbers.
+	 */
+	private static void readFrame(LineReader input, int frame, double[] coords)
+			throws IOException {
+		if (!input.nextLine()) {
+			throw new IOException(String.format(
+					"Frame %d expected on line %d, but file ended.", frame,
+					frame + 2));
+		}
+		if (coords != null && input.parse(coords) < coords.length) {
+			throw new IOException(String.format(
+					"Not enough tokens for frame %d on line %d", frame,
+					frame + 2));
+		}
+	}
+
+	/**
+	 * Returns the given chunk, decoding it if it is not in the window. If the
+	 * chunk can't be read, the error is recorded and a placeholder is kept in
+	 * its place, so that it isn't read again for every coordinate.
+	 */
+	private Chunk getChunk(int c) {
+		Chunk chunk;
+		synchronized (window) {
+			chunk = window.get(c);
+		}
+		if (chunk == null) {
+			try {
+				chunk = decodeChunk(c);
+			} catch (IOException e) {
+				synchronized (window) {
+					if (readError == null) {
+						readError = new IOException(String.format(
+								"Cannot read frames from %s: %s",
+								file.getName(), e.getMessage()), e);
+					}
+				}
+				chunk = createPlaceholder(c);
+			}
+			synchronized (window) {
+				window.put(c, chunk);
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * Queues the chunks after the given one, in the given direction of
+	 * playback, to be decoded in the background if they are not in the
+	 * window.
+	 */
+	private void prefetch(int c, int direction) {
+		for (int i = 1; i <= PREFETCH_CHUNKS; i++) {
+			final int next = c + direction * i;
+			if (next < 0 || next >= getChunkCount()) {
+				break;
+			}
+			synchronized (window) {
+				if (window.containsKey(next) || !pendingChunks.add(next)) {
+					continue;
+				}
+			}
+			PREFETCH_EXECUTOR.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if (!closed) {
+							Chunk chunk = decodeChunk(next);
+							synchronized (window) {
+								window.put(next, chunk);
+							}
+						}
+					} catch (IOException e) {
+						// It will be read again when it is needed.
+					} finally {
+						synchronized (window) {
+							pendingChunks.remove(next);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns a chunk to show in place of one that can't be read, with every
+	 * ASV in every frame at the centre of the chunk's bounding box, and the
+	 * cost at the start of the chunk throughout.
+	 */
+	private Chunk createPlaceholder(int c) {
+		int count = Math.min(CHUNK_SIZE, frameCount - c * CHUNK_SIZE);
+		Chunk chunk = new Chunk();
+		chunk.coords = new double[count * asvCount * 2];
+		chunk.cumulativeCosts = new double[count];
+		double x = ((double) chunkBounds[c * 4] + chunkBounds[c * 4 + 2]) / 2;
+		double y = ((double) chunkBounds[c * 4 + 1] + chunkBounds[c * 4 + 3])
+				/ 2;
+		for (int k = 0; k < chunk.coords.length; k += 2) {
+			chunk.coords[k] = x;
+			chunk.coords[k + 1] = y;
+		}
+		Arrays.fill(chunk.cumulativeCosts, chunkCosts[c]);
+		return chunk;
+	}
+
+	/**
+	 * Reads and parses the frames of the given chunk.
+	 */
+	private Chunk decodeChunk(int c) throws IOException {
+		int first = c * CHUNK_SIZE;
+		int count = Math.min(CHUNK_SIZE, frameCount - first);
+		LineReader input = new LineReader(readRange(chunkOffsets[c],
+				chunkOffsets[c + 1]));
+		Chunk chunk = new Chunk();
+		chunk.coords = new double[count * asvCount * 2];
+		chunk.cumulativeCosts = new double[count];
+		double[] coords = new double[asvCount * 2];
+		double[] previous = new double[asvCount * 2];
+		CompensatedSum cost = new CompensatedSum();
+		cost.set(chunkCosts[c]);
+		for (int f = 0; f < count; f++) {
+			readFrame(input, first + f, coords);
+			if (f > 0) {
+				cost.add(distance(previous, coords));
+			}
+			chunk.cumulativeCosts[f] = cost.getValue();
+			System.arraycopy(coords, 0, chunk.coords, f * coords.length,
+					coords.length);
+			double[] temp = previous;
+			previous = coords;
+			coords = temp;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Reads the bytes of the file between the given offsets.
+	 */
+	private byte[] readRange(long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, start + buffer.position()) < 0) {
+				throw new IOException("Solution file ended unexpectedly");
+			}
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Splits a stream into lines, and parses the numbers on each line without
+	 * creating a string for the whole line.
+	 */
+	private static class LineReader {
+		/** The offset in the stream of the start of the next line */
+		private long offset = 0;
+		/** The stream to read from, or null if the bytes are all in buffer */
+		private InputStream input;
+		private byte[] buffer;
+		private int position = 0;
+		private int limit = 0;
+		private byte[] line = new byte[256];
+		private int length = 0;
+
+		public LineReader(InputStream input) {
+			this.input = input;
+			buffer = new byte[1 << 16];
+		}
+
+		/**
+		 * Constructs a reader for lines already read into memory.
+		 */
+		public LineReader(byte[] bytes) {
+			buffer = bytes;
+			limit = bytes.length;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Reads the next line.
+		 *
+		 * @return whether there was a line to read.
+		 */
+		public boolean nextLine() throws IOException {
+			length = 0;
+			boolean found = false;
+			while (true) {
+				if (position == limit) {
+					if (input == null) {
+						return found;
+					}
+					limit = input.read(buffer);
+					position = 0;
+					if (limit <= 0) {
+						limit = 0;
+						return found;
+					}
+				}
+				found = true;
+				int start = position;
+				while (position < limit && buffer[position] != '\n') {
+					position++;
+				}
+				append(start, position - start);
+				offset += position - start;
+				if (position < limit) {
+					position++;
+					offset++;
+					return true;
+				}
+			}
+		}
+
+		private void append(int start, int count) {
+			if (length + count > line.length) {
+				line = Arrays.copyOf(line, Math.max(line.length * 2, length
+						+ count));
+			}
+			System.arraycopy(buffer, start, line, length, count);
+			length += count;
+		}
+
+		/**
+		 * Parses whitespace-separated numbers from the current line into the
+		 * given array until it is full.
+		 *
+		 * @return the number of values parsed.
+		 * @throws IOException
+		 *             if a token is not a valid number.
+		 */
+		public int parse(double[] values) throws IOException {
+			int count = 0;
+			int i = 0;
+			while (count < values.length) {
+				while (i < length && line[i] <= ' ') {
+					i++;
+				}
+				if (i == length) {
+					break;
+				}
+				int start = i;
+				while (i < length && line[i] > ' ') {
+					i++;
+				}
+				String token = new String(line, start, i - start, "US-ASCII");
+				try {
+					values[count++] = Double.parseDouble(token);
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid number format: " + token);
+				}
+			}
+			return count;
+		}
+	}
+}
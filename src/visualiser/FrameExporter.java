@@ -0,0 +1,287 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import problem.ProblemSpec;
+
+/**
+ * Renders a solution to a sequence of PNG images, one per exported frame,
+ * plus an image of the overview, without needing a display.
+ *
+ * Frames are rendered and written on a thread pool. Each thread reuses a
+ * single image, and only a bounded number of frames are queued at once, so
+ * memory use doesn't grow with the length of the solution.
+ */
+public class FrameExporter {
+	/** The default image width and height, in pixels */
+	public static final int DEFAULT_SIZE = 600;
+	/** The default sampling period for the overview */
+	public static final int DEFAULT_SAMPLING_PERIOD = 100;
+	/** The number of frames that may be queued per thread */
+	private static final int QUEUED_FRAMES_PER_THREAD = 2;
+
+	private FrameStore frames;
+	private SceneRenderer scene;
+	/** The background and obstacles, shared by every frame */
+	private BufferedImage staticLayer;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param problemSetup
+	 *            the problem, which must have a solution loaded.
+	 * @param width
+	 *            the width of the images, in pixels.
+	 * @param height
+	 *            the height of the images, in pixels.
+	 */
+	public FrameExporter(ProblemSpec problemSetup, int width, int height) {
+		frames = new FrameStore(problemSetup);
+		scene = new SceneRenderer(problemSetup, width, height);
+		staticLayer = createImage();
+		Graphics2D g2 = staticLayer.createGraphics();
+		scene.paintBackground(g2);
+		g2.dispose();
+	}
+
+	public FrameStore getFrames() {
+		return frames;
+	}
+
+	private BufferedImage createImage() {
+		return new BufferedImage(scene.getWidth(), scene.getHeight(),
+				BufferedImage.TYPE_INT_RGB);
+	}
+
+	/**
+	 * Draws the given frame into the given image, as it appears during
+	 * animation.
+	 */
+	private void renderFrame(BufferedImage image, int frame) {
+		Graphics2D g2 = image.createGraphics();
+		try {
+			g2.drawImage(staticLayer, 0, 0, null);
+			g2.setStroke(SceneRenderer.STATE_STROKE);
+			g2.setColor(Color.blue);
+			scene.paintFrame(g2, frames, frame);
+		} finally {
+			g2.dispose();
+		}
+	}
+
+	/**
+	 * Writes the overview of the solution to the given file.
+	 *
+	 * @param file
+	 *            the PNG file to write.
+	 * @param samplingPeriod
+	 *            the requested sampling period.
+	 * @throws IOException
+	 *             if the image cannot be written.
+	 */
+	public void exportOverview(File file, int samplingPeriod)
+			throws IOException {
+		BufferedImage image = createImage();
+		Graphics2D g2 = image.createGraphics();
+		try {
+			g2.drawImage(staticLayer, 0, 0, null);
+			g2.setStroke(SceneRenderer.STATE_STROKE);
+			new OverviewRenderer(frames, scene.getTransform(),
+					scene.getWidth(), scene.getHeight(), samplingPeriod)
+					.render(g2);
+		} finally {
+			g2.dispose();
+		}
+		writePng(image, file);
+	}
+
+	/**
+	 * Writes an image to a PNG file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be written, or no PNG writer is
+	 *             available.
+	 */
+	private static void writePng(BufferedImage image, File file)
+			throws IOException {
+		if (!ImageIO.write(image, "png", file)) {
+			throw new IOException("No PNG writer for " + file);
+		}
+	}
+
+	/**
+	 * Writes every stride-th frame from start up to and including end to the
+	 * given directory, as frame-NNNNNN.png where NNNNNN is the frame number.
+	 *
+	 * @param dir
+	 *            the output directory.
+	 * @param start
+	 *            the first frame to export.
+	 * @param end
+	 *            the last frame that may be exported.
+	 * @param stride
+	 *            the number of frames between exported frames.
+	 * @param threadCount
+	 *            the number of threads to render with.
+	 * @return the number of frames written.
+	 * @throws IOException
+	 *             if any of the images cannot be written.
+	 */
+	public int exportFrames(final File dir, int start, int end, int stride,
+			int threadCount) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		final Semaphore queued = new Semaphore(threadCount
+				* QUEUED_FRAMES_PER_THREAD);
+		final ThreadLocal<BufferedImage> images = new ThreadLocal<BufferedImage>() {
+			@Override
+			protected BufferedImage initialValue() {
+				return createImage();
+			}
+		};
+		final AtomicInteger written = new AtomicInteger();
+		final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+		try {
+			for (int i = start; i <= end && failure.get() == null; i += stride) {
+				queued.acquire();
+				final int frame = i;
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (failure.get() != null) {
+								return;
+							}
+							BufferedImage image = images.get();
+							renderFrame(image, frame);
+							File file = new File(dir, String.format(
+									"frame-%06d.png", frame));
+							writePng(image, file);
+							written.incrementAndGet();
+						} catch (IOException e) {
+							failure.compareAndSet(null, e);
+						} catch (Throwable e) {
+							failure.compareAndSet(null, new IOException(
+									"Failed to export frame " + frame, e));
+						} finally {
+							queued.release();
+						}
+					}
+				});
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Export interrupted", e);
+		} finally {
+			pool.shutdownNow();
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return written.get();
+	}
+
+	/**
+	 * Exports a solution from the command line.
+	 *
+	 * @param args
+	 *            the command line arguments.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		int width = DEFAULT_SIZE;
+		int height = DEFAULT_SIZE;
+		int start = 0;
+		int end = Integer.MAX_VALUE;
+		int stride = 1;
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		int samplingPeriod = DEFAULT_SAMPLING_PERIOD;
+		String problemPath = null;
+		String solutionPath = null;
+		String outputPath = null;
+		boolean badValue = false;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i].trim();
+			if (arg.startsWith("-") && i + 1 < args.length) {
+				i++;
+				int value;
+				try {
+					value = Integer.valueOf(args[i].trim());
+				} catch (NumberFormatException e) {
+					badValue = true;
+					continue;
+				}
+				if (arg.equals("-w")) {
+					width = value;
+				} else if (arg.equals("-h")) {
+					height = value;
+				} else if (arg.equals("-s")) {
+					start = value;
+				} else if (arg.equals("-e")) {
+					end = value;
+				} else if (arg.equals("-k")) {
+					stride = value;
+				} else if (arg.equals("-t")) {
+					threadCount = value;
+				} else if (arg.equals("-p")) {
+					samplingPeriod = value;
+				}
+			} else if (problemPath == null) {
+				problemPath = arg;
+			} else if (solutionPath == null) {
+				solutionPath = arg;
+			} else {
+				outputPath = arg;
+			}
+		}
+		if (badValue || outputPath == null || width <= 0 || height <= 0 || stride <= 0
+				|| threadCount <= 0 || samplingPeriod <= 0) {
+			System.out.println("Usage: exporter [-w width] [-h height] "
+					+ "[-s startFrame] [-e endFrame] [-k stride] "
+					+ "[-t threads] [-p samplingPeriod] "
+					+ "problem-file solution-file output-dir");
+			System.exit(1);
+		}
+
+		ProblemSpec ps = new ProblemSpec();
+		try {
+			ps.loadProblem(problemPath);
+			ps.loadSolution(solutionPath);
+		} catch (IOException e) {
+			System.out.println("Failed to load files: " + e.getMessage());
+			System.exit(1);
+		}
+		File dir = new File(outputPath);
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			System.out.println("Cannot create directory " + dir);
+			System.exit(1);
+		}
+
+		FrameExporter exporter = new FrameExporter(ps, width, height);
+		end = Math.min(end, exporter.getFrames().getFrameCount() - 1);
+		try {
+			exporter.exportOverview(new File(dir, "overview.png"),
+					samplingPeriod);
+			int written = exporter.exportFrames(dir, Math.max(start, 0), end,
+					stride, threadCount);
+			System.out.println("Wrote overview and " + written
+					+ " frames to " + dir);
+		} catch (IOException e) {
+			System.out.println("Export failed: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
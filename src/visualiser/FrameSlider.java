@@ -0,0 +1,59 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.Graphics;
+
+import javax.swing.JSlider;
+import javax.swing.plaf.SliderUI;
+import javax.swing.plaf.basic.BasicSliderUI;
+
+/**
+ * A slider for choosing a frame, which marks the frames that fail validation
+ * along its track.
+ */
+public class FrameSlider extends JSlider {
+	/** UID, as required by Swing */
+	private static final long serialVersionUID = 6370270573462287155L;
+
+	/** The colour of the marks */
+	private static final Color MARK_COLOR = new Color(220, 0, 0);
+	/** The height of the marks, in pixels */
+	private static final int MARK_HEIGHT = 4;
+
+	private ValidationResults results;
+
+	public FrameSlider(int orientation) {
+		super(orientation);
+	}
+
+	public void setValidationResults(ValidationResults results) {
+		this.results = results;
+		repaint();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		SliderUI ui = getUI();
+		if (results == null || !(ui instanceof BasicSliderUI)
+				|| getMaximum() <= getMinimum()) {
+			return;
+		}
+		BasicSliderUI basicUI = (BasicSliderUI) ui;
+		g.setColor(MARK_COLOR);
+		// Each pixel column covers the frames from its value up to the value
+		// of the next column; the maximum is only reached at the end.
+		int value = basicUI.valueForXPosition(0);
+		for (int x = 0; x < getWidth(); x++) {
+			int next = basicUI.valueForXPosition(x + 1);
+			if (next > value && results.hasInvalidFrame(value, next)) {
+				g.fillRect(x, 0, 1, MARK_HEIGHT);
+			}
+			if (value < getMaximum() && next == getMaximum()
+					&& results.isInvalid(next)) {
+				g.fillRect(x + 1, 0, 1, MARK_HEIGHT);
+			}
+			value = next;
+		}
+	}
+}
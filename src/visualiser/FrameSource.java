@@ -0,0 +1,72 @@
+package visualiser;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+
+import problem.ASVConfig;
+
+/**
+ * Provides the frames of a solution for playback.
+ *
+ * Frames are grouped into chunks of CHUNK_SIZE consecutive frames, each with a
+ * bounding box, so that parts of the path that can't be seen can be skipped
+ * without reading them. Implementations must allow frames to be read from
+ * background threads as well as the event dispatch thread.
+ */
+public interface FrameSource {
+	/** The number of frames in each chunk */
+	int CHUNK_SIZE = 256;
+
+	int getFrameCount();
+
+	int getASVCount();
+
+	float getX(int frame, int asvNo);
+
+	float getY(int frame, int asvNo);
+
+	ASVConfig getState(int frame);
+
+	double getCumulativeCost(int frame);
+
+	/**
+	 * Returns the number of chunks; chunk c holds the frames from c *
+	 * CHUNK_SIZE.
+	 */
+	int getChunkCount();
+
+	/**
+	 * Returns whether any ASV in the given chunk, or any boom between them,
+	 * could lie within the given area.
+	 */
+	boolean chunkIntersects(int chunk, Rectangle2D area);
+
+	/**
+	 * Adds any frames that have become available since the source was
+	 * created or last updated; this is called on the event dispatch thread.
+	 *
+	 * @return the number of frames added.
+	 */
+	int update();
+
+	/**
+	 * Tells the source which frame is being shown, so that it can read ahead
+	 * in the direction playback is moving; this is called from whichever
+	 * thread is drawing the animation.
+	 */
+	void frameShown(int frame);
+
+	/**
+	 * Returns the first error in reading frames, or null if there has been
+	 * none. Frames are read while painting, so a frame that can't be read is
+	 * returned as a placeholder rather than failing; callers check this
+	 * afterwards to stop playback and tell the user.
+	 */
+	IOException getReadError();
+
+	/**
+	 * Releases any resources held by the source; it should not be used
+	 * afterwards.
+	 */
+	void close();
+}
@@ -0,0 +1,199 @@
+package visualiser;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import problem.ASVConfig;
+import problem.CompensatedSum;
+import problem.PathCost;
+import problem.ProblemSpec;
+
+/**
+ * Holds the frames of a solution in a form suited to playback: the ASV
+ * coordinates of every frame are packed into a single array, alongside the
+ * cumulative cost up to each frame, so looking up a frame takes constant time
+ * and allocates nothing.
+ *
+ * Frames can be appended on the event dispatch thread while other threads
+ * read the existing ones; the arrays are only ever replaced by larger copies,
+ * and the frame count is published after the new frames are filled in.
+ */
+public class FrameStore implements FrameSource {
+	/** The solution path */
+	private List<ASVConfig> path;
+	/** The number of ASVs in each frame */
+	private int asvCount;
+	/** The number of frames */
+	private volatile int frameCount;
+	/** The x- and y-coordinates of every ASV in every frame */
+	private volatile float[] coords;
+	/** The cumulative cost up to each frame */
+	private volatile double[] cumulativeCosts;
+	/**
+	 * The bounding box of every ASV in each chunk of CHUNK_SIZE frames, as
+	 * minX, minY, maxX, maxY
+	 */
+	private volatile float[] chunkBounds;
+	/** The total cost of the frames so far */
+	private CompensatedSum totalCost = new CompensatedSum();
+
+	/**
+	 * Builds the frames for the solution currently loaded in the given spec.
+	 *
+	 * @param spec
+	 *            the problem spec, which must have a solution loaded.
+	 */
+	public FrameStore(ProblemSpec spec) {
+		path = spec.getPathView();
+		asvCount = spec.getASVCount();
+		int n = path.size();
+		coords = new float[n * asvCount * 2];
+		fillCoords(0, n);
+		cumulativeCosts = PathCost.cumulativeCosts(path);
+		if (n > 0) {
+			totalCost.set(cumulativeCosts[n - 1]);
+		}
+		chunkBounds = new float[getChunkCount(n) * 4];
+		computeChunkBounds(0, n);
+		frameCount = n;
+	}
+
+	/**
+	 * Adds frames for any states appended to the solution path since this
+	 * store was built or last updated.
+	 *
+	 * @return the number of frames added.
+	 */
+	@Override
+	public int update() {
+		int oldCount = frameCount;
+		int newCount = path.size();
+		if (newCount <= oldCount) {
+			return 0;
+		}
+		if (newCount * asvCount * 2 > coords.length) {
+			int capacity = Math.max(newCount, oldCount * 2);
+			coords = Arrays.copyOf(coords, capacity * asvCount * 2);
+			cumulativeCosts = Arrays.copyOf(cumulativeCosts, capacity);
+			chunkBounds = Arrays.copyOf(chunkBounds,
+					getChunkCount(capacity) * 4);
+		}
+		fillCoords(oldCount, newCount);
+		double[] costs = cumulativeCosts;
+		for (int i = Math.max(oldCount, 1); i < newCount; i++) {
+			totalCost.add(path.get(i - 1).totalDistance(path.get(i)));
+			costs[i] = totalCost.getValue();
+		}
+		computeChunkBounds(oldCount, newCount);
+		frameCount = newCount;
+		return newCount - oldCount;
+	}
+
+	/**
+	 * Copies the coordinates of the frames [start, end) from the path.
+	 */
+	private void fillCoords(int start, int end) {
+		float[] coords = this.coords;
+		int k = start * asvCount * 2;
+		for (int f = start; f < end; f++) {
+			ASVConfig cfg = path.get(f);
+			for (int i = 0; i < asvCount; i++) {
+				coords[k++] = (float) cfg.getX(i);
+				coords[k++] = (float) cfg.getY(i);
+			}
+		}
+	}
+
+	private static int getChunkCount(int frameCount) {
+		return (frameCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	/**
+	 * Computes the bounding boxes of the chunks containing frames [start,
+	 * end), given that these are the last frames.
+	 */
+	private void computeChunkBounds(int start, int end) {
+		float[] coords = this.coords;
+		float[] chunkBounds = this.chunkBounds;
+		for (int c = start / CHUNK_SIZE; c < getChunkCount(end); c++) {
+			float minX = Float.POSITIVE_INFINITY;
+			float minY = Float.POSITIVE_INFINITY;
+			float maxX = Float.NEGATIVE_INFINITY;
+			float maxY = Float.NEGATIVE_INFINITY;
+			int first = c * CHUNK_SIZE * asvCount * 2;
+			int last = Math.min(end, (c + 1) * CHUNK_SIZE) * asvCount * 2;
+			for (int k = first; k < last; k += 2) {
+				minX = Math.min(minX, coords[k]);
+				minY = Math.min(minY, coords[k + 1]);
+				maxX = Math.max(maxX, coords[k]);
+				maxY = Math.max(maxY, coords[k + 1]);
+			}
+			chunkBounds[c * 4] = minX;
+			chunkBounds[c * 4 + 1] = minY;
+			chunkBounds[c * 4 + 2] = maxX;
+			chunkBounds[c * 4 + 3] = maxY;
+		}
+	}
+
+	@Override
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	@Override
+	public int getASVCount() {
+		return asvCount;
+	}
+
+	@Override
+	public float getX(int frame, int asvNo) {
+		return coords[(frame * asvCount + asvNo) * 2];
+	}
+
+	@Override
+	public float getY(int frame, int asvNo) {
+		return coords[(frame * asvCount + asvNo) * 2 + 1];
+	}
+
+	@Override
+	public ASVConfig getState(int frame) {
+		return path.get(frame);
+	}
+
+	@Override
+	public double getCumulativeCost(int frame) {
+		return cumulativeCosts[frame];
+	}
+
+	@Override
+	public int getChunkCount() {
+		return getChunkCount(frameCount);
+	}
+
+	@Override
+	public boolean chunkIntersects(int chunk, Rectangle2D area) {
+		float[] chunkBounds = this.chunkBounds;
+		return chunkBounds[chunk * 4] <= area.getMaxX()
+				&& chunkBounds[chunk * 4 + 1] <= area.getMaxY()
+				&& chunkBounds[chunk * 4 + 2] >= area.getMinX()
+				&& chunkBounds[chunk * 4 + 3] >= area.getMinY();
+	}
+
+	@Override
+	public void frameShown(int frame) {
+		// Every frame is held in memory.
+	}
+
+	@Override
+	public IOException getReadError() {
+		// Every frame is held in memory.
+		return null;
+	}
+
+	@Override
+	public void close() {
+		// Nothing to release.
+	}
+}
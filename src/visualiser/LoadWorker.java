@@ -0,0 +1,212 @@
+package visualiser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import problem.PathCodec;
+import problem.ProblemSpec;
+
+/**
+ * Loads a problem and/or solution in the background. The files are parsed
+ * into a new problem spec, so that the one being displayed is untouched until
+ * loading has finished; progress is reported as the percentage of bytes read.
+ * A solution text file too large to hold in memory is opened as a
+ * DiskFrameSource instead, leaving the spec without a solution.
+ */
+public class LoadWorker extends SwingWorker<ProblemSpec, Void> {
+	/**
+	 * Receives the result of a load on the event dispatch thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called when the files have been loaded successfully.
+		 */
+		void loadSucceeded(LoadWorker worker, ProblemSpec spec);
+
+		/**
+		 * Called when a file could not be loaded.
+		 */
+		void loadFailed(LoadWorker worker, File file, IOException e);
+	}
+
+	/** The size from which solution text files are read from disk */
+	public static final long DISK_THRESHOLD = 256L << 20;
+
+	private Listener listener;
+	private ProblemSpec base;
+	private File problemFile;
+	private File solutionFile;
+	/** The total size of the files to read, in bytes */
+	private long totalBytes;
+	/** The number of bytes read so far */
+	private long bytesRead = 0;
+	/** The file currently being read */
+	private File currentFile;
+	/** The frames of the solution, if it is read from disk */
+	private volatile DiskFrameSource frameSource;
+	/** Guards publishing frameSource against closing it on cancel */
+	private final Object sourceLock = new Object();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param listener
+	 *            the listener to notify when loading finishes.
+	 * @param base
+	 *            the problem spec to load a solution for, if no problem file
+	 *            is given; it is copied rather than modified.
+	 * @param problemFile
+	 *            the problem file to load, or null to keep the base problem.
+	 * @param solutionFile
+	 *            the solution file to load, or null to load no solution.
+	 */
+	public LoadWorker(Listener listener, ProblemSpec base, File problemFile,
+			File solutionFile) {
+		this.listener = listener;
+		this.base = base;
+		this.problemFile = problemFile;
+		this.solutionFile = solutionFile;
+		totalBytes = (problemFile == null ? 0 : problemFile.length())
+				+ (solutionFile == null ? 0 : solutionFile.length());
+	}
+
+	public File getProblemFile() {
+		return problemFile;
+	}
+
+	public File getSolutionFile() {
+		return solutionFile;
+	}
+
+	/**
+	 * Returns the frames of the solution if it is to be read from disk, or
+	 * null if it was loaded into the problem spec.
+	 */
+	public DiskFrameSource getFrameSource() {
+		return frameSource;
+	}
+
+	@Override
+	protected ProblemSpec doInBackground() throws IOException {
+		ProblemSpec spec;
+		if (problemFile != null) {
+			spec = new ProblemSpec();
+			currentFile = problemFile;
+			InputStream input = open(problemFile);
+			try {
+				spec.loadProblem(input);
+			} finally {
+				input.close();
+			}
+		} else {
+			spec = new ProblemSpec(base);
+		}
+		if (solutionFile != null) {
+			currentFile = solutionFile;
+			InputStream input = new BufferedInputStream(open(solutionFile));
+			try {
+				if (solutionFile.length() >= DISK_THRESHOLD
+						&& spec.problemLoaded()
+						&& !PathCodec.isCompressed(input)) {
+					DiskFrameSource source = DiskFrameSource.open(
+							solutionFile, spec.getASVCount(), input);
+					// A cancel may already have run done(), which would then
+					// never see the source, so publish it under the lock.
+					synchronized (sourceLock) {
+						if (isCancelled()) {
+							source.close();
+							throw new InterruptedIOException(
+									"Loading cancelled");
+						}
+						frameSource = source;
+					}
+					spec.clearSolution();
+				} else {
+					spec.loadSolution(input);
+				}
+			} finally {
+				input.close();
+			}
+		}
+		return spec;
+	}
+
+	private InputStream open(File file) throws IOException {
+		return new ProgressInputStream(new FileInputStream(file));
+	}
+
+	/**
+	 * Records that the given number of bytes have been read, and aborts if
+	 * the load has been cancelled.
+	 */
+	private void bytesRead(long count) throws IOException {
+		if (isCancelled()) {
+			throw new InterruptedIOException("Loading cancelled");
+		}
+		if (count <= 0 || totalBytes <= 0) {
+			return;
+		}
+		bytesRead += count;
+		setProgress((int) Math.min(100, bytesRead * 100 / totalBytes));
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			synchronized (sourceLock) {
+				if (frameSource != null) {
+					frameSource.close();
+				}
+			}
+			return;
+		}
+		try {
+			listener.loadSucceeded(this, get());
+		} catch (InterruptedException e) {
+			// Nothing was loaded.
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			IOException error = (cause instanceof IOException) ? (IOException) cause
+					: new IOException(cause);
+			listener.loadFailed(this, currentFile, error);
+		}
+	}
+
+	/**
+	 * Reports the bytes read through it to the enclosing worker.
+	 */
+	private class ProgressInputStream extends FilterInputStream {
+		public ProgressInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			bytesRead(b < 0 ? 0 : 1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			bytesRead(n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			bytesRead(skipped);
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Renders the sampled overview of a solution, with level-of-detail limits so
+ * that the time taken is bounded regardless of the path length and sampling
+ * period.
+ *
+ * Three limits are applied. Firstly, chunks of the path whose bounding boxes
+ * lie outside the visible area are skipped entirely. Secondly, the number of
+ * visible states considered is capped at a budget proportional to the pixel
+ * area being drawn, by widening the sampling period if necessary. Thirdly, a
+ * sampled state is skipped if no ASV has moved by more than a pixel on screen
+ * since the last state drawn, since drawing it would make no visible
+ * difference.
+ */
+public class OverviewRenderer {
+	/** The number of pixels of panel area per state in the budget */
+	public static final int PIXELS_PER_STATE = 64;
+	/** The minimum number of states in the budget */
+	public static final int MIN_STATE_BUDGET = 256;
+	/** The margin around the visible area, in pixels, to allow for strokes */
+	private static final int VIEW_MARGIN = 4;
+	/**
+	 * The colours of the states along the path, from blue at the start to
+	 * green at the end; one for each level of green
+	 */
+	private static final Color[] GRADIENT = new Color[256];
+	static {
+		for (int i = 0; i < GRADIENT.length; i++) {
+			GRADIENT[i] = new Color(0, i, 255 - i);
+		}
+	}
+
+	private FrameSource frames;
+	/** The number of frames when this renderer was created */
+	private int frameCount;
+	private AffineTransform transform;
+	private int samplingPeriod;
+	/** Whether each chunk of frames could be visible */
+	private boolean[] visibleChunks;
+
+	/** Screen coordinates of the state being drawn */
+	private int[] xs;
+	private int[] ys;
+	/** Screen coordinates of the last state drawn */
+	private int[] lastXs;
+	private int[] lastYs;
+	/** Buffer for transforming coordinates */
+	private float[] points;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param frames
+	 *            the frames of the solution.
+	 * @param transform
+	 *            the transform from workspace to screen coordinates.
+	 * @param width
+	 *            the width of the area being drawn, in pixels.
+	 * @param height
+	 *            the height of the area being drawn, in pixels.
+	 * @param samplingPeriod
+	 *            the requested sampling period.
+	 */
+	public OverviewRenderer(FrameSource frames, AffineTransform transform,
+			int width, int height, int samplingPeriod) {
+		this(frames, frames.getFrameCount(), transform, width, height,
+				samplingPeriod);
+	}
+
+	/**
+	 * Constructs a renderer for the first frameCount frames of the given
+	 * frame store.
+	 *
+	 * @param frames
+	 *            the frames of the solution.
+	 * @param frameCount
+	 *            the number of frames to draw from.
+	 * @param transform
+	 *            the transform from workspace to screen coordinates.
+	 * @param width
+	 *            the width of the area being drawn, in pixels.
+	 * @param height
+	 *            the height of the area being drawn, in pixels.
+	 * @param samplingPeriod
+	 *            the requested sampling period.
+	 */
+	public OverviewRenderer(FrameSource frames, int frameCount,
+			AffineTransform transform, int width, int height,
+			int samplingPeriod) {
+		this.frames = frames;
+		this.frameCount = frameCount;
+		this.transform = transform;
+		int visibleFrames = findVisibleChunks(width, height);
+		int budget = getStateBudget(width, height);
+		this.samplingPeriod = Math.max(samplingPeriod,
+				(int) Math.ceil((double) visibleFrames / budget));
+		int n = frames.getASVCount();
+		xs = new int[n];
+		ys = new int[n];
+		lastXs = new int[n];
+		lastYs = new int[n];
+		points = new float[n * 2];
+	}
+
+	/**
+	 * Works out which chunks of frames could be visible in an area of the
+	 * given size.
+	 *
+	 * @param width
+	 *            the width in pixels.
+	 * @param height
+	 *            the height in pixels.
+	 * @return the number of frames in the visible chunks.
+	 */
+	private int findVisibleChunks(int width, int height) {
+		visibleChunks = new boolean[(frameCount + FrameSource.CHUNK_SIZE - 1)
+				/ FrameSource.CHUNK_SIZE];
+		Rectangle2D area;
+		try {
+			area = transform.createInverse()
+					.createTransformedShape(
+							new Rectangle(-VIEW_MARGIN, -VIEW_MARGIN, width + 2
+									* VIEW_MARGIN, height + 2 * VIEW_MARGIN))
+					.getBounds2D();
+		} catch (NoninvertibleTransformException e) {
+			area = null;
+		}
+		int visibleFrames = 0;
+		for (int c = 0; c < visibleChunks.length; c++) {
+			visibleChunks[c] = area == null || frames.chunkIntersects(c, area);
+			if (visibleChunks[c]) {
+				visibleFrames += Math.min(FrameSource.CHUNK_SIZE,
+						frameCount - c * FrameSource.CHUNK_SIZE);
+			}
+		}
+		return visibleFrames;
+	}
+
+	/**
+	 * Returns the maximum number of states drawn for a panel of the given
+	 * size.
+	 *
+	 * @param width
+	 *            the width in pixels.
+	 * @param height
+	 *            the height in pixels.
+	 * @return the maximum number of states to draw.
+	 */
+	public static int getStateBudget(int width, int height) {
+		return Math.max(MIN_STATE_BUDGET, width * height / PIXELS_PER_STATE);
+	}
+
+	/**
+	 * Returns the sampling period actually used, after the budget is applied.
+	 *
+	 * @return the effective sampling period.
+	 */
+	public int getEffectiveSamplingPeriod() {
+		return samplingPeriod;
+	}
+
+	/**
+	 * Returns the number of frames drawn from, which doesn't change if more
+	 * are appended to the frame store.
+	 *
+	 * @return the number of frames drawn from.
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Returns the number of the first sample at or after the given frame.
+	 *
+	 * @param frame
+	 *            the frame number.
+	 * @return the number of the first sample at or after the frame.
+	 */
+	public int getFirstSampleFrom(int frame) {
+		return (frame + samplingPeriod - 1) / samplingPeriod;
+	}
+
+	/**
+	 * Returns the number of sampled states, not including the final state.
+	 *
+	 * @return the number of sampled states.
+	 */
+	public int getSampleCount() {
+		int lastIndex = frameCount - 1;
+		return (lastIndex + samplingPeriod - 1) / samplingPeriod;
+	}
+
+	/**
+	 * Draws the overview, including the final state in green.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 * @return the number of states drawn.
+	 */
+	public int render(Graphics2D g2) {
+		return render(g2, 0, getSampleCount(), null) + renderFinalState(g2);
+	}
+
+	/**
+	 * Draws the visible sampled states with sample numbers in [start, end);
+	 * sample k is the frame k times the effective sampling period. Drawing
+	 * stops early if the given flag is set.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 * @param start
+	 *            the first sample to draw.
+	 * @param end
+	 *            the sample after the last one to draw.
+	 * @param cancelled
+	 *            a flag that is set if drawing should stop, or null.
+	 * @return the number of states drawn.
+	 */
+	public int render(Graphics2D g2, int start, int end,
+			AtomicBoolean cancelled) {
+		int lastIndex = frameCount - 1;
+		int drawn = 0;
+		boolean first = true;
+		for (int k = start; k < end; k++) {
+			if (cancelled != null && (k & 0xFF) == 0 && cancelled.get()) {
+				break;
+			}
+			int i = k * samplingPeriod;
+			int chunk = i / FrameSource.CHUNK_SIZE;
+			if (!visibleChunks[chunk]) {
+				// Continue from the first sample in the next chunk.
+				int next = (chunk + 1) * FrameSource.CHUNK_SIZE;
+				k = (next + samplingPeriod - 1) / samplingPeriod - 1;
+				continue;
+			}
+			project(i);
+			if (!first && !movedVisibly()) {
+				continue;
+			}
+			first = false;
+			g2.setColor(GRADIENT[(int) ((long) i * 255 * 2 + lastIndex)
+					/ (lastIndex * 2)]);
+			drawProjected(g2);
+			drawn++;
+		}
+		return drawn;
+	}
+
+	/**
+	 * Draws the final state in green.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 * @return the number of states drawn.
+	 */
+	public int renderFinalState(Graphics2D g2) {
+		project(frameCount - 1);
+		g2.setColor(Color.green);
+		drawProjected(g2);
+		return 1;
+	}
+
+	/**
+	 * Computes the screen coordinates of the given frame.
+	 *
+	 * @param frame
+	 *            the frame number.
+	 */
+	private void project(int frame) {
+		int n = frames.getASVCount();
+		for (int i = 0; i < n; i++) {
+			points[i * 2] = frames.getX(frame, i);
+			points[i * 2 + 1] = frames.getY(frame, i);
+		}
+		transform.transform(points, 0, points, 0, n);
+		for (int i = 0; i < n; i++) {
+			xs[i] = Math.round(points[i * 2]);
+			ys[i] = Math.round(points[i * 2 + 1]);
+		}
+	}
+
+	/**
+	 * Returns whether any ASV of the projected state is more than a pixel
+	 * away from where it was in the last state drawn.
+	 *
+	 * @return whether the projected state differs visibly from the last one.
+	 */
+	private boolean movedVisibly() {
+		for (int i = 0; i < xs.length; i++) {
+			if (Math.abs(xs[i] - lastXs[i]) > 1
+					|| Math.abs(ys[i] - lastYs[i]) > 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Draws the projected state and remembers it as the last state drawn.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 */
+	private void drawProjected(Graphics2D g2) {
+		g2.drawPolyline(xs, ys, xs.length);
+		System.arraycopy(xs, 0, lastXs, 0, xs.length);
+		System.arraycopy(ys, 0, lastYs, 0, ys.length);
+	}
+}
@@ -0,0 +1,159 @@
+package visualiser;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingWorker;
+
+/**
+ * Renders the solution overview into an offscreen image in the background.
+ *
+ * The sampled states are split into one contiguous run per processor; each
+ * run is drawn into its own transparent tile on a shared thread pool, and the
+ * tiles are then composited in order so that later states are drawn over
+ * earlier ones, exactly as they would be if drawn sequentially. The final
+ * state is not included, since the panel draws it on top.
+ */
+public class OverviewWorker extends SwingWorker<BufferedImage, Void> {
+	/** The number of tiles rendered in parallel */
+	private static final int TILE_COUNT = Runtime.getRuntime()
+			.availableProcessors();
+	/** The pool on which the tiles are rendered */
+	private static final ExecutorService TILE_POOL = Executors
+			.newFixedThreadPool(TILE_COUNT, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "overview-renderer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+	private VisualisationPanel panel;
+	private FrameSource frames;
+	private AffineTransform transform;
+	private int width;
+	private int height;
+	private int samplingPeriod;
+	/** The number of frames drawn, which is fixed when rendering starts */
+	private volatile int frameCount;
+	/** Set when this worker's result is no longer wanted */
+	private AtomicBoolean cancelled = new AtomicBoolean(false);
+
+	public OverviewWorker(VisualisationPanel panel, FrameSource frames,
+			AffineTransform transform, int width, int height,
+			int samplingPeriod) {
+		this.panel = panel;
+		this.frames = frames;
+		this.transform = new AffineTransform(transform);
+		this.width = width;
+		this.height = height;
+		this.samplingPeriod = samplingPeriod;
+	}
+
+	/**
+	 * Returns whether this worker renders the overview for the given
+	 * parameters.
+	 */
+	public boolean matches(FrameSource frames, AffineTransform transform,
+			int width, int height, int samplingPeriod) {
+		return this.frames == frames && this.transform.equals(transform)
+				&& this.width == width
+				&& this.height == height
+				&& this.samplingPeriod == samplingPeriod;
+	}
+
+	public AffineTransform getTransform() {
+		return transform;
+	}
+
+	/**
+	 * Returns the number of frames the rendered overview covers; frames
+	 * appended after rendering started are not included.
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Stops rendering as soon as possible and discards the result.
+	 */
+	public void abandon() {
+		cancelled.set(true);
+		cancel(false);
+	}
+
+	@Override
+	protected BufferedImage doInBackground() throws Exception {
+		OverviewRenderer sizing = new OverviewRenderer(frames,
+				transform, width, height, samplingPeriod);
+		frameCount = sizing.getFrameCount();
+		int sampleCount = sizing.getSampleCount();
+		int tileCount = Math.max(1, Math.min(TILE_COUNT, sampleCount));
+		List<Future<BufferedImage>> tiles;
+		tiles = new ArrayList<Future<BufferedImage>>();
+		for (int i = 0; i < tileCount; i++) {
+			final int start = (int) ((long) sampleCount * i / tileCount);
+			final int end = (int) ((long) sampleCount * (i + 1) / tileCount);
+			tiles.add(TILE_POOL.submit(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() {
+					BufferedImage tile = createImage();
+					Graphics2D g2 = tile.createGraphics();
+					g2.setStroke(SceneRenderer.STATE_STROKE);
+					OverviewRenderer renderer = new OverviewRenderer(frames,
+							frameCount, transform, width, height,
+							samplingPeriod);
+					renderer.render(g2, start, end, cancelled);
+					g2.dispose();
+					return tile;
+				}
+			}));
+		}
+
+		BufferedImage image = createImage();
+		Graphics2D g2 = image.createGraphics();
+		try {
+			for (Future<BufferedImage> tile : tiles) {
+				if (cancelled.get()) {
+					return null;
+				}
+				g2.drawImage(tile.get(), 0, 0, null);
+			}
+		} finally {
+			g2.dispose();
+		}
+		return cancelled.get() ? null : image;
+	}
+
+	private BufferedImage createImage() {
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			return;
+		}
+		try {
+			BufferedImage image = get();
+			if (image != null) {
+				panel.overviewRendered(this, image);
+			}
+		} catch (InterruptedException e) {
+			// Nothing to show.
+		} catch (ExecutionException e) {
+			panel.overviewFailed(this, e.getCause());
+		}
+	}
+}
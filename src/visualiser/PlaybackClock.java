@@ -0,0 +1,77 @@
+package visualiser;
+
+/**
+ * Tracks the playback position by elapsed wall-clock time, so that the rate
+ * at which the solution advances is independent of how often the display is
+ * refreshed. At high speeds many steps pass between refreshes, and the
+ * intermediate states are simply skipped. The clock may be read from a render
+ * thread while it is controlled from the event dispatch thread.
+ */
+public class PlaybackClock {
+	/** Nanoseconds per second */
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/** The playback rate, in steps per second */
+	private double stepsPerSecond;
+	/** The frame at which the clock was last started */
+	private int startFrame = 0;
+	/** The time at which the clock was last started */
+	private long startTime;
+	/** Whether the clock is running */
+	private boolean running = false;
+
+	public PlaybackClock(double stepsPerSecond) {
+		this.stepsPerSecond = stepsPerSecond;
+	}
+
+	/**
+	 * Starts (or restarts) the clock from the given frame at the current
+	 * time.
+	 */
+	public synchronized void start(int frame) {
+		startFrame = frame;
+		startTime = System.nanoTime();
+		running = true;
+	}
+
+	/**
+	 * Stops the clock at its current frame.
+	 */
+	public synchronized void stop() {
+		startFrame = getFrame();
+		running = false;
+	}
+
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns the frame that playback should be showing now.
+	 */
+	public synchronized int getFrame() {
+		if (!running) {
+			return startFrame;
+		}
+		double elapsed = (System.nanoTime() - startTime) / NANOS_PER_SECOND;
+		double frame = startFrame + elapsed * stepsPerSecond;
+		return frame >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) frame;
+	}
+
+	/**
+	 * Changes the playback rate without causing the position to jump.
+	 */
+	public synchronized void setStepsPerSecond(double stepsPerSecond) {
+		if (running) {
+			int frame = getFrame();
+			this.stepsPerSecond = stepsPerSecond;
+			start(frame);
+		} else {
+			this.stepsPerSecond = stepsPerSecond;
+		}
+	}
+
+	public synchronized double getStepsPerSecond() {
+		return stepsPerSecond;
+	}
+}
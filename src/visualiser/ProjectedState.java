@@ -0,0 +1,189 @@
+package visualiser;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.List;
+
+import problem.ASVConfig;
+
+/**
+ * The screen coordinates of a single state, along with reusable geometry for
+ * drawing it, so that drawing a state allocates nothing.
+ *
+ * The state and transform it was projected with are remembered, and
+ * projecting the same state with the same transform again does nothing;
+ * transforms are compared by identity, so a new transform (after a resize or
+ * a change of view) always causes the state to be projected again. Instances
+ * are not thread-safe.
+ */
+public class ProjectedState {
+	/** The screen coordinates of each ASV, as x and y pairs */
+	private float[] coords = new float[0];
+	private int asvCount = 0;
+
+	/** The source of the projected state; a FrameSource or an ASVConfig */
+	private Object source;
+	/** The frame number, if the source is a FrameSource */
+	private int frame;
+	/** The transform the state was projected with */
+	private AffineTransform transform;
+
+	private Path2D.Float path = new Path2D.Float();
+	private Ellipse2D.Float circle = new Ellipse2D.Float();
+	private Line2D.Float line = new Line2D.Float();
+	/** The number of lines and circles drawn since the count was taken */
+	private int shapeCount = 0;
+
+	/**
+	 * Projects the given frame, unless it was the last state projected with
+	 * the same transform.
+	 */
+	public void project(FrameSource frames, int frame,
+			AffineTransform transform) {
+		if (source == frames && this.frame == frame
+				&& this.transform == transform) {
+			return;
+		}
+		setASVCount(frames.getASVCount());
+		for (int i = 0; i < asvCount; i++) {
+			coords[i * 2] = frames.getX(frame, i);
+			coords[i * 2 + 1] = frames.getY(frame, i);
+		}
+		transform.transform(coords, 0, coords, 0, asvCount);
+		setSource(frames, frame, transform);
+	}
+
+	/**
+	 * Projects the given state, unless it was the last state projected with
+	 * the same transform.
+	 */
+	public void project(ASVConfig s, AffineTransform transform) {
+		if (source == s && this.transform == transform) {
+			return;
+		}
+		setASVCount(s.getASVCount());
+		for (int i = 0; i < asvCount; i++) {
+			coords[i * 2] = (float) s.getX(i);
+			coords[i * 2 + 1] = (float) s.getY(i);
+		}
+		transform.transform(coords, 0, coords, 0, asvCount);
+		setSource(s, -1, transform);
+	}
+
+	private void setASVCount(int asvCount) {
+		if (coords.length < asvCount * 2) {
+			coords = new float[asvCount * 2];
+		}
+		this.asvCount = asvCount;
+	}
+
+	private void setSource(Object source, int frame, AffineTransform transform) {
+		this.source = source;
+		this.frame = frame;
+		this.transform = transform;
+	}
+
+	/**
+	 * Forgets the projected state, so that it will be projected again even
+	 * if it is unchanged.
+	 */
+	public void invalidate() {
+		source = null;
+		transform = null;
+	}
+
+	/**
+	 * Returns the number of lines and circles drawn since this was last
+	 * called, and starts counting again.
+	 */
+	public int takeShapeCount() {
+		int count = shapeCount;
+		shapeCount = 0;
+		return count;
+	}
+
+	public float getX(int asvNo) {
+		return coords[asvNo * 2];
+	}
+
+	public float getY(int asvNo) {
+		return coords[asvNo * 2 + 1];
+	}
+
+	/**
+	 * Sets the given rectangle to the bounds of the projected state, grown by
+	 * the given margin on every side.
+	 */
+	public void getBounds(int margin, Rectangle bounds) {
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < asvCount; i++) {
+			minX = Math.min(minX, coords[i * 2]);
+			minY = Math.min(minY, coords[i * 2 + 1]);
+			maxX = Math.max(maxX, coords[i * 2]);
+			maxY = Math.max(maxY, coords[i * 2 + 1]);
+		}
+		int x0 = (int) Math.floor(minX) - margin;
+		int y0 = (int) Math.floor(minY) - margin;
+		int x1 = (int) Math.ceil(maxX) + margin;
+		int y1 = (int) Math.ceil(maxY) + margin;
+		bounds.setBounds(x0, y0, x1 - x0, y1 - y0);
+	}
+
+	/**
+	 * Draws the booms of the state with the current colour and stroke.
+	 */
+	public void draw(Graphics2D g2) {
+		path.reset();
+		path.moveTo(coords[0], coords[1]);
+		for (int i = 1; i < asvCount; i++) {
+			path.lineTo(coords[i * 2], coords[i * 2 + 1]);
+		}
+		g2.draw(path);
+		shapeCount += asvCount - 1;
+	}
+
+	/**
+	 * Draws the given booms with the current colour and stroke; boom i joins
+	 * ASV i to ASV i+1.
+	 */
+	public void drawBooms(Graphics2D g2, List<Integer> booms) {
+		for (int i : booms) {
+			line.setLine(coords[i * 2], coords[i * 2 + 1], coords[i * 2 + 2],
+					coords[i * 2 + 3]);
+			g2.draw(line);
+		}
+		shapeCount += booms.size();
+	}
+
+	/**
+	 * Draws a circle of the given radius around the given ASV with the
+	 * current colour and stroke.
+	 */
+	public void drawCircle(Graphics2D g2, int asvNo, int radius) {
+		setCircle(asvNo, radius);
+		g2.draw(circle);
+		shapeCount++;
+	}
+
+	/**
+	 * Fills a circle of the given radius around the given ASV with the
+	 * current colour.
+	 */
+	public void fillCircle(Graphics2D g2, int asvNo, int radius) {
+		setCircle(asvNo, radius);
+		g2.fill(circle);
+		shapeCount++;
+	}
+
+	private void setCircle(int asvNo, int radius) {
+		circle.setFrame(coords[asvNo * 2] - radius,
+				coords[asvNo * 2 + 1] - radius, radius * 2, radius * 2);
+	}
+}
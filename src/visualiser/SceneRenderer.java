@@ -0,0 +1,198 @@
+package visualiser;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import problem.ASVConfig;
+import problem.Obstacle;
+import problem.ProblemSpec;
+
+/**
+ * Draws the workspace, obstacles and ASV states of a problem at a given size.
+ * This holds no Swing state, so it is shared by the interactive panel and the
+ * headless exporter, and can be used from any thread as long as the problem
+ * isn't modified at the same time. States are drawn through a reusable
+ * projection for each thread, so drawing them allocates nothing.
+ */
+public class SceneRenderer {
+	/** The radius of the circle drawn around the first ASV, in pixels */
+	public static final int FIRST_ASV_RADIUS = 4;
+	/** The width of highlighted booms, in pixels */
+	public static final int HIGHLIGHT_WIDTH = 4;
+	/** The stroke used to draw states */
+	public static final BasicStroke STATE_STROKE = new BasicStroke(2);
+	/** The stroke used to draw highlighted booms */
+	private static final BasicStroke HIGHLIGHT_STROKE = new BasicStroke(
+			HIGHLIGHT_WIDTH);
+	/** The stroke used to draw the circle around the first ASV */
+	private static final BasicStroke FIRST_ASV_STROKE = new BasicStroke(1);
+
+	/** The whole workspace */
+	public static final Rectangle2D WORKSPACE = new Rectangle2D.Double(0, 0,
+			1, 1);
+
+	private ProblemSpec problemSetup;
+	private int width;
+	private int height;
+	/** The part of the workspace shown */
+	private Rectangle2D view;
+	private AffineTransform transform;
+	/** Reusable projections, one for each thread drawing with this renderer */
+	private ThreadLocal<ProjectedState> projections = new ThreadLocal<ProjectedState>() {
+		@Override
+		protected ProjectedState initialValue() {
+			return new ProjectedState();
+		}
+	};
+
+	/**
+	 * Constructs a renderer that shows the whole workspace.
+	 */
+	public SceneRenderer(ProblemSpec problemSetup, int width, int height) {
+		this(problemSetup, width, height, WORKSPACE);
+	}
+
+	/**
+	 * Constructs a renderer that shows the given part of the workspace.
+	 */
+	public SceneRenderer(ProblemSpec problemSetup, int width, int height,
+			Rectangle2D view) {
+		this.problemSetup = problemSetup;
+		this.width = width;
+		this.height = height;
+		this.view = (Rectangle2D) view.clone();
+		transform = createTransform(width, height, view);
+	}
+
+	/**
+	 * Returns the transform from workspace coordinates, with y pointing up,
+	 * to screen coordinates, such that the given view fills an area of the
+	 * given size.
+	 */
+	public static AffineTransform createTransform(int width, int height,
+			Rectangle2D view) {
+		AffineTransform transform = AffineTransform.getScaleInstance(width
+				/ view.getWidth(), -height / view.getHeight());
+		transform.concatenate(AffineTransform.getTranslateInstance(
+				-view.getMinX(), -view.getMaxY()));
+		return transform;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public Rectangle2D getView() {
+		return (Rectangle2D) view.clone();
+	}
+
+	/**
+	 * Returns whether this renderer shows the given view, without copying
+	 * its own.
+	 */
+	public boolean hasView(Rectangle2D view) {
+		return this.view.equals(view);
+	}
+
+	public AffineTransform getTransform() {
+		return transform;
+	}
+
+	/**
+	 * Returns the number of lines and circles this renderer has drawn on the
+	 * current thread since this was last called there.
+	 */
+	public int takeShapeCount() {
+		return projections.get().takeShapeCount();
+	}
+
+	/**
+	 * Fills the background and draws the obstacles within the view.
+	 */
+	public void paintBackground(Graphics2D g2) {
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, width, height);
+		g2.setColor(Color.red);
+		for (Obstacle obs : problemSetup.getObstacleIndex().query(view)) {
+			Shape transformed = transform.createTransformedShape(obs.getRect());
+			g2.fill(transformed);
+		}
+	}
+
+	/**
+	 * Draws the given state with the current colour and stroke, optionally
+	 * marking the first ASV.
+	 */
+	public void paintState(Graphics2D g2, ASVConfig s, boolean markFirst) {
+		if (s == null) {
+			return;
+		}
+		ProjectedState projected = projections.get();
+		projected.project(s, transform);
+		paintProjected(g2, projected, markFirst);
+	}
+
+	/**
+	 * Draws the given frame with the current colour and stroke, marking the
+	 * first ASV.
+	 */
+	public void paintFrame(Graphics2D g2, FrameSource frames, int frame) {
+		ProjectedState projected = projections.get();
+		projected.project(frames, frame, transform);
+		paintProjected(g2, projected, true);
+	}
+
+	/**
+	 * Draws a state that has already been projected with this renderer's
+	 * transform, with the current colour and stroke, optionally marking the
+	 * first ASV.
+	 */
+	public void paintProjected(Graphics2D g2, ProjectedState projected,
+			boolean markFirst) {
+		projected.draw(g2);
+		if (markFirst) {
+			Color color = g2.getColor();
+			Stroke stroke = g2.getStroke();
+			g2.setColor(Color.BLACK);
+			g2.setStroke(FIRST_ASV_STROKE);
+			projected.drawCircle(g2, 0, FIRST_ASV_RADIUS);
+			g2.setColor(color);
+			g2.setStroke(stroke);
+		}
+	}
+
+	/**
+	 * Draws the given booms of a state with the current colour and a heavier
+	 * stroke; boom i joins ASV i to ASV i+1.
+	 */
+	public void paintBooms(Graphics2D g2, ASVConfig s, List<Integer> booms) {
+		ProjectedState projected = projections.get();
+		projected.project(s, transform);
+		Stroke stroke = g2.getStroke();
+		g2.setStroke(HIGHLIGHT_STROKE);
+		projected.drawBooms(g2, booms);
+		g2.setStroke(stroke);
+	}
+
+	/**
+	 * Marks the given ASVs of a state with filled circles in the current
+	 * colour.
+	 */
+	public void paintASVMarks(Graphics2D g2, ASVConfig s, List<Integer> asvs) {
+		ProjectedState projected = projections.get();
+		projected.project(s, transform);
+		for (int i : asvs) {
+			projected.fillCircle(g2, i, FIRST_ASV_RADIUS);
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package visualiser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingWorker;
+
+import problem.ASVConfig;
+
+/**
+ * Follows a solution text file as it is written, parsing each line once as it
+ * is appended and passing the new states to a listener on the event dispatch
+ * thread.
+ *
+ * The file is read from the offset where the last read stopped, and only
+ * complete lines are parsed; a partial line is kept until the rest of it
+ * arrives. The first line is the header, which is skipped, since a solution
+ * that is still being written has no meaningful header yet. A WatchService on
+ * the file's directory wakes the follower when the file changes, with a
+ * periodic check as a fallback for file systems that don't report changes.
+ * If the file shrinks, it is assumed to have been rewritten, and is followed
+ * again from the start.
+ */
+public class SolutionFollower extends SwingWorker<Void, SolutionFollower.Batch> {
+	/**
+	 * Receives the states read from the file on the event dispatch thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called when states have been read from the file.
+		 *
+		 * @param restart
+		 *            whether the file was rewritten, so that the states replace
+		 *            any read before rather than following them.
+		 */
+		void statesAppended(SolutionFollower follower,
+				List<ASVConfig> states, boolean restart);
+
+		/**
+		 * Called if the file cannot be read or contains an invalid line; the
+		 * follower stops.
+		 */
+		void followFailed(SolutionFollower follower, IOException e);
+	}
+
+	/**
+	 * A run of states read together.
+	 */
+	public static class Batch {
+		private List<ASVConfig> states = new ArrayList<ASVConfig>();
+		private boolean restart;
+
+		private Batch(boolean restart) {
+			this.restart = restart;
+		}
+	}
+
+	/** The size of the read buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** The longest time to wait for a change notification, in milliseconds */
+	private static final long POLL_INTERVAL = 500;
+
+	private Listener listener;
+	private Path file;
+	private int asvCount;
+
+	/** The offset in the file up to which it has been read */
+	private long offset = 0;
+	/** The number of complete lines read */
+	private long lineNo = 0;
+	/** The bytes of a line that has not been completed yet */
+	private byte[] partialLine = new byte[256];
+	private int partialLength = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param listener
+	 *            the listener to pass the states to.
+	 * @param file
+	 *            the solution file to follow.
+	 * @param asvCount
+	 *            the number of ASVs in each state.
+	 */
+	public SolutionFollower(Listener listener, Path file, int asvCount) {
+		this.listener = listener;
+		this.file = file.toAbsolutePath();
+		this.asvCount = asvCount;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Stops following the file.
+	 */
+	public void stop() {
+		cancel(true);
+	}
+
+	@Override
+	protected Void doInBackground() throws IOException {
+		WatchService watcher = FileSystems.getDefault().newWatchService();
+		try {
+			file.getParent().register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (!isCancelled()) {
+				readNewLines(buffer);
+				WatchKey key;
+				try {
+					key = watcher.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					break;
+				}
+				if (key != null) {
+					// Any change in the directory is worth a look.
+					key.pollEvents();
+					key.reset();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Stopped.
+		} finally {
+			watcher.close();
+		}
+		return null;
+	}
+
+	/**
+	 * Reads from the last offset to the current end of the file, and
+	 * publishes the states on any complete lines.
+	 */
+	private void readNewLines(ByteBuffer buffer) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+		} catch (IOException e) {
+			// The file may be in the middle of being replaced.
+			return;
+		}
+		try {
+			Batch batch = new Batch(false);
+			if (channel.size() < offset) {
+				offset = 0;
+				lineNo = 0;
+				partialLength = 0;
+				batch.restart = true;
+			}
+			channel.position(offset);
+			while (!isCancelled()) {
+				buffer.clear();
+				int n = channel.read(buffer);
+				if (n <= 0) {
+					break;
+				}
+				offset += n;
+				byte[] bytes = buffer.array();
+				int lineStart = 0;
+				for (int i = 0; i < n; i++) {
+					if (bytes[i] == '\n') {
+						appendPartial(bytes, lineStart, i - lineStart);
+						parseLine(batch);
+						lineStart = i + 1;
+					}
+				}
+				appendPartial(bytes, lineStart, n - lineStart);
+				if (!batch.states.isEmpty() || batch.restart) {
+					publish(batch);
+					batch = new Batch(false);
+				}
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void appendPartial(byte[] bytes, int start, int length) {
+		if (partialLength + length > partialLine.length) {
+			partialLine = Arrays.copyOf(partialLine,
+					Math.max(partialLine.length * 2, partialLength + length));
+		}
+		System.arraycopy(bytes, start, partialLine, partialLength, length);
+		partialLength += length;
+	}
+
+	/**
+	 * Parses the completed line and adds its state to the batch, unless it
+	 * is the header or blank.
+	 */
+	private void parseLine(Batch batch) throws IOException {
+		String line = new String(partialLine, 0, partialLength,
+				Charset.defaultCharset()).trim();
+		partialLength = 0;
+		lineNo++;
+		if (lineNo == 1 || line.isEmpty()) {
+			return;
+		}
+		try {
+			batch.states.add(new ASVConfig(asvCount, line));
+		} catch (NoSuchElementException e) {
+			throw new IOException(String.format("Invalid state on line %d",
+					lineNo));
+		}
+	}
+
+	@Override
+	protected void process(List<Batch> batches) {
+		if (isCancelled()) {
+			return;
+		}
+		List<ASVConfig> states = new ArrayList<ASVConfig>();
+		boolean restart = false;
+		for (Batch batch : batches) {
+			if (batch.restart) {
+				states.clear();
+				restart = true;
+			}
+			states.addAll(batch.states);
+		}
+		listener.statesAppended(this, states, restart);
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			return;
+		}
+		try {
+			get();
+		} catch (InterruptedException e) {
+			// Stopped.
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			listener.followFailed(this,
+					(cause instanceof IOException) ? (IOException) cause
+							: new IOException(cause));
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package visualiser;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * An offscreen image of the background with the trails swept by the ASVs up
+ * to the current frame drawn over it.
+ *
+ * The trails are drawn incrementally: each update only draws the segments
+ * between the last frame drawn and the new one, so that playing through a
+ * solution takes time proportional to its length rather than its square. The
+ * image is only redrawn from the start when the animation goes backwards, or
+ * when the scene, background or frames change. Instances are not thread-safe.
+ */
+public class TrailLayer {
+	/** The colour of the trails */
+	public static final Color TRAIL_COLOR = new Color(170, 170, 255);
+	/** The margin around the visible area, in pixels, to allow for strokes */
+	private static final int VIEW_MARGIN = 2;
+
+	private BufferedImage image;
+	/** The scene, background and frames the image was drawn for */
+	private SceneRenderer scene;
+	private BufferedImage background;
+	private FrameSource frames;
+	/** The last frame drawn into the image */
+	private int lastFrame;
+	/** The screen coordinates of the end of each ASV's trail */
+	private float[] lastXs = new float[0];
+	private float[] lastYs = new float[0];
+	/** Whether the trails drawn so far end at lastXs and lastYs */
+	private boolean joined;
+	/** The part of the workspace that could be visible, for culling */
+	private Rectangle2D visibleArea;
+
+	private Path2D.Float path = new Path2D.Float();
+	/** Buffer for transforming coordinates */
+	private float[] point = new float[2];
+	/** The bounds of the segments drawn by the current update */
+	private float minX, minY, maxX, maxY;
+
+	/**
+	 * Returns the image; this is null until the first update.
+	 *
+	 * @return the image.
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	/**
+	 * Brings the image up to date with the given frame.
+	 *
+	 * @param scene
+	 *            the scene being shown.
+	 * @param background
+	 *            the pre-rendered background of the scene.
+	 * @param frames
+	 *            the frames of the solution.
+	 * @param frame
+	 *            the frame being shown.
+	 * @param changed
+	 *            if not null, this is set to the area of the image that
+	 *            changed, which is empty if nothing did.
+	 * @return true if only the given area changed, or false if the whole
+	 *         image was redrawn.
+	 */
+	public boolean update(SceneRenderer scene, BufferedImage background,
+			FrameSource frames, int frame, Rectangle changed) {
+		boolean incremental = true;
+		if (scene != this.scene || background != this.background
+				|| frames != this.frames || frame < lastFrame) {
+			reset(scene, background, frames);
+			incremental = false;
+		}
+		minX = minY = Float.POSITIVE_INFINITY;
+		maxX = maxY = Float.NEGATIVE_INFINITY;
+		if (frame > lastFrame) {
+			Graphics2D g2 = image.createGraphics();
+			try {
+				g2.setColor(TRAIL_COLOR);
+				drawTrails(g2, lastFrame, frame);
+			} finally {
+				g2.dispose();
+			}
+			lastFrame = frame;
+		}
+		if (changed != null) {
+			if (minX > maxX) {
+				changed.setBounds(0, 0, 0, 0);
+			} else {
+				int x0 = (int) Math.floor(minX) - VIEW_MARGIN;
+				int y0 = (int) Math.floor(minY) - VIEW_MARGIN;
+				int x1 = (int) Math.ceil(maxX) + VIEW_MARGIN;
+				int y1 = (int) Math.ceil(maxY) + VIEW_MARGIN;
+				changed.setBounds(x0, y0, x1 - x0, y1 - y0);
+			}
+		}
+		return incremental;
+	}
+
+	/**
+	 * Forgets the scene and frames, so that the image is redrawn from the
+	 * start on the next update.
+	 */
+	public void invalidate() {
+		scene = null;
+		background = null;
+		frames = null;
+	}
+
+	/**
+	 * Clears the image back to the background, with no trails drawn.
+	 */
+	private void reset(SceneRenderer scene, BufferedImage background,
+			FrameSource frames) {
+		this.scene = scene;
+		this.background = background;
+		this.frames = frames;
+		lastFrame = 0;
+		joined = false;
+		int width = background.getWidth();
+		int height = background.getHeight();
+		if (image == null || image.getWidth() != width
+				|| image.getHeight() != height) {
+			image = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+		}
+		Graphics2D g2 = image.createGraphics();
+		g2.drawImage(background, 0, 0, null);
+		g2.dispose();
+		try {
+			visibleArea = scene
+					.getTransform()
+					.createInverse()
+					.createTransformedShape(
+							new Rectangle(-VIEW_MARGIN, -VIEW_MARGIN, width + 2
+									* VIEW_MARGIN, height + 2 * VIEW_MARGIN))
+					.getBounds2D();
+		} catch (NoninvertibleTransformException e) {
+			visibleArea = null;
+		}
+	}
+
+	/**
+	 * Draws the trail of each ASV from one frame to another, a chunk at a
+	 * time, skipping chunks that can't be seen. The trails continue from
+	 * where the last update left them, so drawing in several updates gives
+	 * the same result as drawing in one.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 * @param start
+	 *            the frame the trails start from.
+	 * @param end
+	 *            the frame the trails end at.
+	 */
+	private void drawTrails(Graphics2D g2, int start, int end) {
+		int n = frames.getASVCount();
+		if (lastXs.length != n) {
+			lastXs = new float[n];
+			lastYs = new float[n];
+			joined = false;
+		}
+		int firstChunk = start / FrameSource.CHUNK_SIZE;
+		for (int c = firstChunk; c * FrameSource.CHUNK_SIZE < end; c++) {
+			if (visibleArea != null
+					&& !frames.chunkIntersects(c, visibleArea)) {
+				joined = false;
+				continue;
+			}
+			// Each chunk's trail runs on to the first frame of the next one.
+			// After a culled chunk, the trail starts from the culled chunk's
+			// last frame, since the segment from it may cross the view.
+			int from = Math.max(start, c * FrameSource.CHUNK_SIZE);
+			int to = Math.min(end, (c + 1) * FrameSource.CHUNK_SIZE);
+			int rejoinFrom = from > 0 ? from - 1 : from;
+			for (int i = 0; i < n; i++) {
+				if (!joined) {
+					project(rejoinFrom, i, scene.getTransform());
+					lastXs[i] = point[0];
+					lastYs[i] = point[1];
+				}
+				drawTrail(g2, i, from, to);
+			}
+			joined = true;
+		}
+	}
+
+	/**
+	 * Draws the trail of one ASV from one frame to another, leaving out
+	 * points less than a pixel from the end of the trail; the trail may
+	 * therefore stop just short of the ASV, where the ASV itself is drawn.
+	 *
+	 * @param g2
+	 *            the graphics to draw with.
+	 * @param asvNo
+	 *            the number of the ASV.
+	 * @param from
+	 *            the first frame of the trail.
+	 * @param to
+	 *            the last frame of the trail.
+	 */
+	private void drawTrail(Graphics2D g2, int asvNo, int from, int to) {
+		AffineTransform transform = scene.getTransform();
+		float lastX = lastXs[asvNo];
+		float lastY = lastYs[asvNo];
+		boolean moved = false;
+		path.reset();
+		path.moveTo(lastX, lastY);
+		for (int f = from + 1; f <= to; f++) {
+			project(f, asvNo, transform);
+			if (Math.abs(point[0] - lastX) >= 1
+					|| Math.abs(point[1] - lastY) >= 1) {
+				lastX = point[0];
+				lastY = point[1];
+				path.lineTo(lastX, lastY);
+				moved = true;
+			}
+		}
+		if (moved) {
+			g2.draw(path);
+			lastXs[asvNo] = lastX;
+			lastYs[asvNo] = lastY;
+		}
+	}
+
+	/**
+	 * Sets the point buffer to the screen coordinates of the given ASV in the
+	 * given frame, and grows the bounds of the update to include it.
+	 */
+	private void project(int frame, int asvNo, AffineTransform transform) {
+		point[0] = frames.getX(frame, asvNo);
+		point[1] = frames.getY(frame, asvNo);
+		transform.transform(point, 0, point, 0, 1);
+		minX = Math.min(minX, point[0]);
+		minY = Math.min(minY, point[1]);
+		maxX = Math.max(maxX, point[0]);
+		maxY = Math.max(maxY, point[1]);
+	}
+}
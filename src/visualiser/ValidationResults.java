@@ -0,0 +1,135 @@
+package visualiser;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Records which of the tester's checks each frame of a solution fails, as the
+ * results come in from the background validation.
+ *
+ * The results are only accessed on the event dispatch thread.
+ */
+public class ValidationResults {
+	/** The first frame is not the initial state */
+	public static final int INITIAL = 1;
+	/** The last frame is not the goal state */
+	public static final int GOAL = 1 << 1;
+	/** The step into the frame is too long */
+	public static final int STEP = 1 << 2;
+	/** A boom has an invalid length */
+	public static final int BOOMS = 1 << 3;
+	/** The frame is not convex */
+	public static final int CONVEXITY = 1 << 4;
+	/** The frame has insufficient area */
+	public static final int AREA = 1 << 5;
+	/** An ASV is out of bounds */
+	public static final int BOUNDS = 1 << 6;
+	/** A boom collides with an obstacle */
+	public static final int COLLISION = 1 << 7;
+
+	/** The names of the checks, in bit order */
+	private static final String[] CHECK_NAMES = { "initial state",
+			"goal state", "step size", "boom lengths", "convexity", "area",
+			"bounds", "collision" };
+
+	/** The failed checks for each frame */
+	private byte[] flags = new byte[0];
+	/** The frames that fail any check, except for the goal check */
+	private BitSet invalidFrames = new BitSet();
+	/** The number of frames that have been checked */
+	private int checkedCount = 0;
+	/** The frame that was checked against the goal, or -1 */
+	private int goalFrame = -1;
+	/** Whether the goal frame matches the goal state */
+	private boolean goalReached = true;
+
+	/**
+	 * Records the results for a run of frames.
+	 *
+	 * @param start
+	 *            the first frame in the run.
+	 * @param runFlags
+	 *            the failed checks for each frame in the run.
+	 */
+	public void addResults(int start, byte[] runFlags) {
+		int end = start + runFlags.length;
+		if (end > flags.length) {
+			flags = Arrays.copyOf(flags, Math.max(end, flags.length * 2));
+		}
+		System.arraycopy(runFlags, 0, flags, start, runFlags.length);
+		for (int i = 0; i < runFlags.length; i++) {
+			if (runFlags[i] != 0) {
+				invalidFrames.set(start + i);
+			}
+		}
+		checkedCount += runFlags.length;
+	}
+
+	/**
+	 * Records whether the given frame, which is currently the last one,
+	 * matches the goal state.
+	 */
+	public void setGoalResult(int frame, boolean reached) {
+		goalFrame = frame;
+		goalReached = reached;
+	}
+
+	/**
+	 * Returns the checks the given frame fails, as a combination of the flag
+	 * constants.
+	 */
+	public int getFlags(int frame) {
+		int result = frame < flags.length ? flags[frame] & 0xFF : 0;
+		if (frame == goalFrame && !goalReached) {
+			result |= GOAL;
+		}
+		return result;
+	}
+
+	public boolean isInvalid(int frame) {
+		return getFlags(frame) != 0;
+	}
+
+	/**
+	 * Returns whether any frame in [start, end) fails a check.
+	 */
+	public boolean hasInvalidFrame(int start, int end) {
+		int next = invalidFrames.nextSetBit(start);
+		if (next >= 0 && next < end) {
+			return true;
+		}
+		return !goalReached && goalFrame >= start && goalFrame < end;
+	}
+
+	/**
+	 * Returns the number of frames that fail a check.
+	 */
+	public int getInvalidCount() {
+		int count = invalidFrames.cardinality();
+		if (!goalReached && !invalidFrames.get(goalFrame)) {
+			count++;
+		}
+		return count;
+	}
+
+	public int getCheckedCount() {
+		return checkedCount;
+	}
+
+	/**
+	 * Returns the names of the checks in the given flags, separated by
+	 * commas.
+	 */
+	public static String describe(int flags) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < CHECK_NAMES.length; i++) {
+			if ((flags & (1 << i)) != 0) {
+				if (sb.length() > 0) {
+					sb.append(", ");
+				}
+				sb.append(CHECK_NAMES[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
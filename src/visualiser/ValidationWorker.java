@@ -0,0 +1,253 @@
+package visualiser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingWorker;
+
+import problem.ASVConfig;
+import problem.ObstacleIndex;
+import problem.ProblemSpec;
+import tester.Tester;
+
+/**
+ * Runs the tester's per-state checks over a range of frames in the
+ * background.
+ *
+ * The range is split into runs that are checked in parallel on a shared pool,
+ * and the results for each run are passed to the listener on the event
+ * dispatch thread as soon as it finishes, so invalid frames show up while the
+ * rest are still being checked. States held in memory are copied when the
+ * worker is created, since the path may be extended while it runs; states on
+ * disk are read by each task as it starts.
+ */
+public class ValidationWorker extends
+		SwingWorker<Void, ValidationWorker.Run> {
+	/**
+	 * Receives the results of the validation on the event dispatch thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called after the results for some frames have been added.
+		 */
+		void validationProgressed(ValidationWorker worker);
+
+		/**
+		 * Called if the frames could not be checked, for example because
+		 * they could not be read from disk; frames without results are left
+		 * unchecked.
+		 */
+		void validationFailed(ValidationWorker worker, Throwable cause);
+	}
+
+	/**
+	 * The results for a run of frames.
+	 */
+	public static class Run {
+		private int start;
+		private byte[] flags;
+
+		private Run(int start, byte[] flags) {
+			this.start = start;
+			this.flags = flags;
+		}
+	}
+
+	/** The number of frames checked in each task */
+	private static final int RUN_SIZE = 8192;
+	/** The pool on which the frames are checked */
+	private static final ExecutorService VALIDATION_POOL = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "validator");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+
+	private Listener listener;
+	private ValidationResults results;
+	private Tester tester = new Tester();
+	private ObstacleIndex obstacleIndex;
+	private ASVConfig initialState;
+	/** The first frame to check */
+	private int start;
+	/** The frame after the last one to check */
+	private int end;
+	/**
+	 * The states to check, preceded by the state before start, if any; null
+	 * if they are read from disk
+	 */
+	private List<ASVConfig> states;
+	/** The source to read the states from, if they are not in memory */
+	private DiskFrameSource diskSource;
+	/** Set when this worker's results are no longer wanted */
+	private AtomicBoolean cancelled = new AtomicBoolean(false);
+
+	/**
+	 * Constructor; this should be called on the event dispatch thread, since
+	 * it takes a copy of the frames to check and records the goal check for
+	 * the last frame.
+	 *
+	 * @param listener
+	 *            the listener to notify as results come in.
+	 * @param results
+	 *            the results to add to.
+	 * @param spec
+	 *            the problem and solution.
+	 * @param frames
+	 *            the frames of the solution.
+	 * @param start
+	 *            the first frame to check.
+	 * @param end
+	 *            the frame after the last one to check; this should be the
+	 *            current length of the solution path.
+	 */
+	public ValidationWorker(Listener listener, ValidationResults results,
+			ProblemSpec spec, FrameSource frames, int start, int end) {
+		this.listener = listener;
+		this.results = results;
+		this.start = start;
+		this.end = end;
+		obstacleIndex = spec.getObstacleIndex();
+		initialState = spec.getInitialState();
+		if (frames instanceof DiskFrameSource) {
+			// Too large to copy; the file doesn't change, so it can be read
+			// in the background instead.
+			diskSource = (DiskFrameSource) frames;
+		} else {
+			states = new ArrayList<ASVConfig>(spec.getPathView().subList(
+					Math.max(start - 1, 0), end));
+		}
+		ASVConfig last = frames.getState(end - 1);
+		results.setGoalResult(end - 1,
+				last.maxDistance(spec.getGoalState()) <= tester.getMaxError());
+	}
+
+	public ValidationResults getResults() {
+		return results;
+	}
+
+	/**
+	 * Stops checking as soon as possible and discards the results.
+	 */
+	public void abandon() {
+		cancelled.set(true);
+		cancel(false);
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		CompletionService<Run> completion = new ExecutorCompletionService<Run>(
+				VALIDATION_POOL);
+		int runCount = 0;
+		for (int i = start; i < end; i += RUN_SIZE) {
+			final int runStart = i;
+			final int runEnd = Math.min(end, i + RUN_SIZE);
+			completion.submit(new Callable<Run>() {
+				@Override
+				public Run call() throws IOException {
+					return checkRun(runStart, runEnd);
+				}
+			});
+			runCount++;
+		}
+		for (int i = 0; i < runCount && !cancelled.get(); i++) {
+			publish(completion.take().get());
+		}
+		return null;
+	}
+
+	/**
+	 * Checks the frames [runStart, runEnd).
+	 */
+	private Run checkRun(int runStart, int runEnd) throws IOException {
+		int first = Math.max(runStart - 1, 0);
+		List<ASVConfig> run;
+		if (diskSource != null) {
+			run = diskSource.readStates(first, runEnd);
+		} else {
+			int offset = Math.max(start - 1, 0);
+			run = states.subList(first - offset, runEnd - offset);
+		}
+		byte[] flags = new byte[runEnd - runStart];
+		for (int f = runStart; f < runEnd && !cancelled.get(); f++) {
+			ASVConfig previous = f > 0 ? run.get(f - 1 - first) : null;
+			flags[f - runStart] = (byte) check(previous, run.get(f - first), f);
+		}
+		return new Run(runStart, flags);
+	}
+
+	/**
+	 * Returns the checks that the given frame fails.
+	 *
+	 * @param previous
+	 *            the state before the frame, or null if it is the first.
+	 * @param cfg
+	 *            the state in the frame.
+	 * @param frame
+	 *            the frame number.
+	 */
+	private int check(ASVConfig previous, ASVConfig cfg, int frame) {
+		int flags = 0;
+		if (frame == 0
+				&& cfg.maxDistance(initialState) > tester.getMaxError()) {
+			flags |= ValidationResults.INITIAL;
+		}
+		if (previous != null && !tester.isValidStep(previous, cfg)) {
+			flags |= ValidationResults.STEP;
+		}
+		if (!tester.hasValidBoomLengths(cfg)) {
+			flags |= ValidationResults.BOOMS;
+		}
+		if (!tester.isConvex(cfg)) {
+			flags |= ValidationResults.CONVEXITY;
+		}
+		if (!tester.hasEnoughArea(cfg)) {
+			flags |= ValidationResults.AREA;
+		}
+		if (!tester.fitsBounds(cfg)) {
+			flags |= ValidationResults.BOUNDS;
+		}
+		if (tester.hasCollision(cfg, obstacleIndex.query(cfg.getBounds()))) {
+			flags |= ValidationResults.COLLISION;
+		}
+		return flags;
+	}
+
+	@Override
+	protected void process(List<Run> runs) {
+		if (cancelled.get()) {
+			return;
+		}
+		for (Run run : runs) {
+			results.addResults(run.start, run.flags);
+		}
+		listener.validationProgressed(this);
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled() || cancelled.get()) {
+			return;
+		}
+		try {
+			get();
+		} catch (InterruptedException e) {
+			// Nothing more to report.
+		} catch (ExecutionException e) {
+			listener.validationFailed(this, e.getCause());
+		}
+	}
+}
@@ -1,52 +1,168 @@
 package visualiser;
 
-import java.awt.BasicStroke;
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Shape;
-import java.awt.Stroke;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
-import java.util.List;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
-import problem.Obstacle;
 import problem.ProblemSpec;
 import problem.ASVConfig;
+import tester.Tester;
 
 public class VisualisationPanel extends JComponent {
 	/** UID, as required by Swing */
 	private static final long serialVersionUID = -4286532773714402501L;
 
+	/**
+	 * Padding around a frame's bounds to cover the ASV-1 circle and the
+	 * stroke width, with a pixel to spare for rounding.
+	 */
+	private static final int DIRTY_MARGIN = SceneRenderer.FIRST_ASV_RADIUS + 2;
+	/** The zoom factor for each step of the mouse wheel */
+	private static final double ZOOM_STEP = 1.25;
+	/** The greatest magnification of the workspace */
+	private static final double MAX_ZOOM = 10000;
+	/** The colour of booms that collide with obstacles */
+	private static final Color COLLISION_COLOR = Color.magenta;
+	/** The colour of ASVs that are out of bounds */
+	private static final Color BOUNDS_COLOR = Color.orange;
+
 	private ProblemSpec problemSetup = new ProblemSpec();
 	private Visualiser visualiser;
 
-	private AffineTransform translation = AffineTransform.getTranslateInstance(
-			0, -1);
+	/** The part of the workspace shown in the panel */
+	private Rectangle2D.Double view = new Rectangle2D.Double(0, 0, 1, 1);
+	/** Where the mouse was last dragged from, while panning */
+	private Point dragOrigin;
+	/** Draws the scene at the current panel size and view */
+	private SceneRenderer scene;
 	private AffineTransform transform = null;
+	/** The background and obstacles, rendered for the current scene */
+	private BufferedImage staticLayer;
+	/** The scene the static layer was rendered for */
+	private SceneRenderer staticLayerScene;
+	/** The last completed overview of the solution */
+	private BufferedImage overviewImage;
+	/** The transform the overview image was drawn with */
+	private AffineTransform overviewTransform;
+	/** The number of frames drawn in the overview image */
+	private int overviewFrameCount;
+	/** Renders the overview in the background */
+	private OverviewWorker overviewWorker;
 
-	private ASVConfig currentState;
+	private FrameSource frames;
+	/** The solutions being compared, or null if there is only one */
+	private Comparison comparison;
 	private boolean animating = false;
 	private boolean displayingSolution = false;
 	private Timer animationTimer;
 	private int framePeriod = 20; // 50 FPS
-	private Integer frameNumber = null;
+	private PlaybackClock playbackClock = new PlaybackClock(50);
+	/** The frame being shown, or -1 if there is none */
+	private int frameNumber = -1;
 	private int maxFrameNumber;
 
 	private int samplingPeriod = 100;
 
+	/** The results of validating the solution, or null */
+	private ValidationResults validationResults;
+	/** Used to find the parts of a state that fail validation */
+	private Tester validator = new Tester();
+	/** The problem whose initial and goal states have been checked */
+	private ProblemSpec violationsChecked;
+	/** The checks failed by the initial and goal states */
+	private int initialViolations;
+	private int goalViolations;
+
+	/** The projections of the frame being shown and the one before it */
+	private ProjectedState currentProjection = new ProjectedState();
+	private ProjectedState previousProjection = new ProjectedState();
+	/** Buffers for the area to repaint when the frame changes */
+	private Rectangle dirtyBounds = new Rectangle();
+	private Rectangle frameBounds = new Rectangle();
+
+	/** Whether playback uses active rendering rather than the timer */
+	private boolean activeRendering = false;
+	/** Plays the animation when active rendering is on; created on demand */
+	private ActiveRenderer activeRenderer;
+	private int framerate = 50;
+	/** The motion trail drawn behind the animation, or null if it is off */
+	private TrailLayer trail;
+	/** The area of the trail changed by the last frame shown */
+	private Rectangle trailBounds = new Rectangle();
+	/** The diagnostics shown over the panel, or null if they are off */
+	private Diagnostics diagnostics;
+	/** Zooms and pans in response to the mouse */
+	private MouseAdapter mouseHandler;
+	/** The last error in reading frames that the user has been told of */
+	private IOException reportedReadError;
+	/** Checks for errors in reading frames once painting has finished */
+	private Runnable readErrorCheck = new Runnable() {
+		@Override
+		public void run() {
+			checkReadError();
+		}
+	};
+
 	public VisualisationPanel(Visualiser visualiser) {
 		super();
 		this.setBackground(Color.WHITE);
 		this.setOpaque(true);
 		this.visualiser = visualiser;
+		mouseHandler = new MouseAdapter() {
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()),
+						e.getPoint());
+			}
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				dragOrigin = e.getPoint();
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if (dragOrigin != null) {
+					pan(e.getX() - dragOrigin.x, e.getY() - dragOrigin.y);
+					dragOrigin = e.getPoint();
+				}
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				dragOrigin = null;
+			}
+
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2) {
+					resetView();
+				}
+			}
+		};
+		addMouseListener(mouseHandler);
+		addMouseMotionListener(mouseHandler);
+		addMouseWheelListener(mouseHandler);
 	}
 
 	public void setDisplayingSolution(boolean displayingSolution) {
@@ -59,63 +175,370 @@ public class VisualisationPanel extends JComponent {
 	}
 
 	public void setFramerate(int framerate) {
+		this.framerate = framerate;
 		this.framePeriod = 1000 / framerate;
 		if (animationTimer != null) {
 			animationTimer.setDelay(framePeriod);
 		}
+		if (activeRenderer != null) {
+			activeRenderer.setFramerate(framerate);
+		}
+		if (diagnostics != null) {
+			diagnostics.setTargetFramerate(framerate);
+		}
+	}
+
+	/**
+	 * Chooses whether playback draws frames from a dedicated render thread
+	 * into a canvas, rather than repainting the panel from a Swing timer.
+	 * Active rendering is not available in a headless environment.
+	 */
+	public void setActiveRendering(boolean activeRendering) {
+		activeRendering &= !GraphicsEnvironment.isHeadless();
+		if (this.activeRendering == activeRendering) {
+			return;
+		}
+		boolean playing = isPlaying();
+		if (playing) {
+			playPauseAnimation();
+		}
+		this.activeRendering = activeRendering;
+		if (playing) {
+			playPauseAnimation();
+		}
+	}
+
+	public boolean isActiveRendering() {
+		return activeRendering;
+	}
+
+	private boolean isPlaying() {
+		return (animationTimer != null && animationTimer.isRunning())
+				|| isRenderingActively();
+	}
+
+	/**
+	 * Returns whether the active renderer is running, in which case the
+	 * panel must leave drawing to it.
+	 */
+	private boolean isRenderingActively() {
+		return activeRenderer != null && activeRenderer.isRunning();
+	}
+
+	/**
+	 * Chooses whether the animation leaves a trail behind each ASV showing
+	 * the path it has swept so far.
+	 */
+	public void setShowingTrail(boolean showingTrail) {
+		if (showingTrail == (trail != null)) {
+			return;
+		}
+		trail = showingTrail ? new TrailLayer() : null;
+		if (activeRenderer != null) {
+			activeRenderer.setTrail(trail);
+		}
+		repaint();
+	}
+
+	public boolean isShowingTrail() {
+		return trail != null;
+	}
+
+	/**
+	 * Chooses whether to record paint times, heap usage and dropped ticks,
+	 * and show them over the panel; turning this off discards them.
+	 */
+	public void setShowingDiagnostics(boolean showingDiagnostics) {
+		if (showingDiagnostics == (diagnostics != null)) {
+			return;
+		}
+		if (showingDiagnostics) {
+			diagnostics = new Diagnostics();
+			diagnostics.setTargetFramerate(framerate);
+			// Only count the shapes drawn from now on.
+			currentProjection.takeShapeCount();
+			if (scene != null) {
+				scene.takeShapeCount();
+			}
+		} else {
+			diagnostics = null;
+		}
+		if (activeRenderer != null) {
+			activeRenderer.setDiagnostics(diagnostics);
+		}
+		repaint();
+	}
+
+	/**
+	 * Returns the diagnostics being recorded, or null if they are off.
+	 */
+	public Diagnostics getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * Shows the active rendering canvas over the panel and starts playing the
+	 * animation on it.
+	 */
+	private void startActiveRendering() {
+		if (activeRenderer == null) {
+			activeRenderer = new ActiveRenderer(this, playbackClock);
+			activeRenderer.setFramerate(framerate);
+			activeRenderer.addMouseListener(mouseHandler);
+			activeRenderer.addMouseMotionListener(mouseHandler);
+			activeRenderer.addMouseWheelListener(mouseHandler);
+			setLayout(new BorderLayout());
+			add(activeRenderer, BorderLayout.CENTER);
+		}
+		calculateTransform();
+		validateStaticLayer();
+		activeRenderer.setScene(scene, staticLayer);
+		activeRenderer.setTrail(trail);
+		activeRenderer.setComparison(comparison);
+		activeRenderer.setDiagnostics(diagnostics);
+		activeRenderer.setVisible(true);
+		validate();
+		activeRenderer.start(frames, maxFrameNumber);
+	}
+
+	/**
+	 * Stops the render thread, if it is running, and hides the canvas so the
+	 * panel shows the current frame again.
+	 */
+	private void stopActiveRendering() {
+		if (activeRenderer == null || !activeRenderer.isVisible()) {
+			return;
+		}
+		activeRenderer.stop();
+		activeRenderer.setVisible(false);
+		repaint();
+	}
+
+	/**
+	 * Called on the event dispatch thread when the active renderer has shown
+	 * a new frame.
+	 */
+	public void activeFrameShown(int frame) {
+		if (frame == frameNumber) {
+			return;
+		}
+		frameNumber = frame;
+		visualiser.setFrameNumber(frame);
+	}
+
+	/**
+	 * Called on the event dispatch thread when the active renderer has
+	 * reached the end of the animation, or has failed.
+	 */
+	public void activePlaybackFinished(int frame) {
+		if (activeRenderer == null || !activeRenderer.isVisible()) {
+			return;
+		}
+		stopActiveRendering();
+		playbackClock.stop();
+		visualiser.setPlaying(false);
+		if (animating) {
+			frameNumber = frame;
+			visualiser.setFrameNumber(frame);
+		}
+		checkReadError();
+	}
+
+	public void setStepsPerSecond(double stepsPerSecond) {
+		playbackClock.setStepsPerSecond(stepsPerSecond);
 	}
 
 	public void initAnimation() {
-		if (!problemSetup.solutionLoaded()) {
+		if (getFrames() == null) {
 			return;
 		}
 		if (animationTimer != null) {
 			animationTimer.stop();
 		}
+		stopActiveRendering();
+		playbackClock.stop();
 		animating = true;
+		frameNumber = -1;
 		gotoFrame(0);
-		maxFrameNumber = problemSetup.getPath().size() - 1;
+		maxFrameNumber = getFrames().getFrameCount() - 1;
 		animationTimer = new Timer(framePeriod, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				int newFrameNumber = frameNumber + 1;
+				if (diagnostics != null) {
+					diagnostics.tick(TimeUnit.MILLISECONDS
+							.toNanos(framePeriod));
+				}
+				int newFrameNumber = playbackClock.getFrame();
 				if (newFrameNumber >= maxFrameNumber) {
+					newFrameNumber = maxFrameNumber;
 					animationTimer.stop();
+					playbackClock.stop();
 					visualiser.setPlaying(false);
 				}
-				if (newFrameNumber <= maxFrameNumber) {
-					gotoFrame(newFrameNumber);
-				}
+				showFrame(newFrameNumber);
+				checkReadError();
 			}
 		});
 		visualiser.setPlaying(false);
 		visualiser.updateMaximum();
 	}
 
+	/**
+	 * Jumps to the given frame; if the animation is playing, playback
+	 * continues from there.
+	 */
 	public void gotoFrame(int frameNumber) {
-		if (!animating
-				|| (this.frameNumber != null && this.frameNumber == frameNumber)) {
+		if (showFrame(frameNumber) && playbackClock.isRunning()) {
+			playbackClock.start(frameNumber);
+		}
+		checkReadError();
+	}
+
+	/**
+	 * Returns the first error in reading the frames being shown, or null if
+	 * there has been none.
+	 */
+	private IOException getReadError() {
+		if (comparison != null) {
+			return comparison.getReadError();
+		}
+		return frames == null ? null : frames.getReadError();
+	}
+
+	/**
+	 * Stops playback and tells the user if frames have failed to be read
+	 * since they were last told.
+	 */
+	private void checkReadError() {
+		IOException error = getReadError();
+		if (error == null || error == reportedReadError) {
 			return;
 		}
+		reportedReadError = error;
+		if (isPlaying()) {
+			playPauseAnimation();
+		}
+		visualiser.framesFailed(error);
+	}
+
+	private boolean showFrame(int frameNumber) {
+		if (!animating || this.frameNumber == frameNumber) {
+			return false;
+		}
+		int previousFrame = this.frameNumber;
 		this.frameNumber = frameNumber;
+		if (comparison != null) {
+			comparison.frameShown(frameNumber);
+		} else if (frames != null) {
+			frames.frameShown(frameNumber);
+		}
 		visualiser.setFrameNumber(frameNumber);
-		currentState = problemSetup.getPath().get(frameNumber);
-		repaint();
+		if (previousFrame >= 0 && transform != null && frames != null
+				&& previousFrame < frames.getFrameCount()
+				&& comparison == null) {
+			// The projection of the previous frame is usually still current.
+			ProjectedState projection = previousProjection;
+			previousProjection = currentProjection;
+			currentProjection = projection;
+			previousProjection.project(frames, previousFrame, transform);
+			currentProjection.project(frames, frameNumber, transform);
+			previousProjection.getBounds(DIRTY_MARGIN, dirtyBounds);
+			currentProjection.getBounds(DIRTY_MARGIN, frameBounds);
+			dirtyBounds.add(frameBounds);
+			if (trail != null && !isRenderingActively()) {
+				validateStaticLayer();
+				if (!trail.update(scene, staticLayer, frames, frameNumber,
+						trailBounds)) {
+					repaint();
+					return true;
+				}
+				if (!trailBounds.isEmpty()) {
+					dirtyBounds.add(trailBounds);
+				}
+			}
+			if (diagnostics != null) {
+				dirtyBounds.add(diagnostics.getOverlayBounds());
+			}
+			repaint(dirtyBounds);
+		} else {
+			repaint();
+		}
+		return true;
 	}
 
 	public int getFrameNumber() {
 		return frameNumber;
 	}
 
+	public FrameSource getFrames() {
+		if (frames == null && problemSetup.solutionLoaded()) {
+			frames = new FrameStore(problemSetup);
+		}
+		return frames;
+	}
+
+	public void problemChanged() {
+		staticLayer = null;
+		solutionChanged();
+	}
+
+	/**
+	 * Shows the given frames, rather than those of the solution in the
+	 * problem spec; this should be called after solutionChanged.
+	 */
+	public void setFrames(FrameSource frames) {
+		this.frames = frames;
+	}
+
+	/**
+	 * Shows the given solutions in sync, rather than the solution in the
+	 * problem spec; this should be called after solutionChanged, and the
+	 * problem spec should be the comparison's reference spec.
+	 */
+	public void setComparison(Comparison comparison) {
+		this.comparison = comparison;
+		frames = comparison.getReferenceFrames();
+	}
+
+	public Comparison getComparison() {
+		return comparison;
+	}
+
+	public void solutionChanged() {
+		stopActiveRendering();
+		if (comparison != null) {
+			comparison.close();
+		} else if (frames != null) {
+			frames.close();
+		}
+		comparison = null;
+		frames = null;
+		if (trail != null) {
+			trail.invalidate();
+		}
+		cancelOverview();
+		overviewImage = null;
+	}
+
 	public void playPauseAnimation() {
-		if (animationTimer.isRunning()) {
+		if (isPlaying()) {
 			animationTimer.stop();
+			stopActiveRendering();
+			playbackClock.stop();
 			visualiser.setPlaying(false);
 		} else {
 			if (frameNumber >= maxFrameNumber) {
 				gotoFrame(0);
 			}
-			animationTimer.start();
+			playbackClock.start(frameNumber);
+			if (diagnostics != null) {
+				diagnostics.playbackStarted();
+			}
+			if (activeRendering) {
+				startActiveRendering();
+			} else {
+				animationTimer.start();
+			}
 			visualiser.setPlaying(true);
 		}
 	}
@@ -124,44 +547,274 @@ public class VisualisationPanel extends JComponent {
 		if (animationTimer != null) {
 			animationTimer.stop();
 		}
+		stopActiveRendering();
+		playbackClock.stop();
 		animating = false;
 		visualiser.setPlaying(false);
-		frameNumber = null;
+		frameNumber = -1;
 	}
 
 	public ProblemSpec getProblemSetup() {
 		return problemSetup;
 	}
 
+	/**
+	 * Replaces the problem being displayed; problemChanged or solutionChanged
+	 * should be called afterwards as appropriate.
+	 */
+	public void setProblemSetup(ProblemSpec problemSetup) {
+		this.problemSetup = problemSetup;
+		scene = null;
+	}
+
 	public void calculateTransform() {
-		transform = AffineTransform.getScaleInstance(getWidth(), -getHeight());
-		transform.concatenate(translation);
+		if (scene == null || scene.getWidth() != getWidth()
+				|| scene.getHeight() != getHeight()
+				|| !scene.hasView(view)) {
+			scene = new SceneRenderer(problemSetup, getWidth(), getHeight(),
+					view);
+		}
+		transform = scene.getTransform();
 	}
 
 	public void paintState(Graphics2D g2, ASVConfig s) {
-		if (s == null) {
+		scene.paintState(g2, s, animating || !displayingSolution);
+	}
+
+	public void paintFrame(Graphics2D g2, int frame) {
+		currentProjection.project(frames, frame, transform);
+		scene.paintProjected(g2, currentProjection, true);
+	}
+
+	/**
+	 * Renders the background and obstacles into the cached static layer,
+	 * unless the cache is already up to date for the current scene.
+	 */
+	private void validateStaticLayer() {
+		if (staticLayer != null && staticLayerScene == scene) {
+			return;
+		}
+		int width = Math.max(getWidth(), 1);
+		int height = Math.max(getHeight(), 1);
+		staticLayerScene = scene;
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if (gc != null) {
+			staticLayer = gc.createCompatibleImage(width, height);
+		} else {
+			staticLayer = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+		}
+		Graphics2D g2 = staticLayer.createGraphics();
+		scene.paintBackground(g2);
+		g2.dispose();
+	}
+
+	/**
+	 * Draws the most recently rendered overview, and starts rendering a new
+	 * one in the background if the sampling period, size, view or solution
+	 * has changed since.
+	 */
+	private void paintOverview(Graphics2D g2) {
+		FrameSource frames = getFrames();
+		int width = getWidth();
+		int height = getHeight();
+		if (width <= 0 || height <= 0) {
 			return;
 		}
-		Path2D.Float path = new Path2D.Float();
+		if (overviewWorker == null
+				|| !overviewWorker.matches(frames, transform, width, height,
+						samplingPeriod)) {
+			cancelOverview();
+			overviewWorker = new OverviewWorker(this, frames, transform,
+					width, height, samplingPeriod);
+			overviewWorker.execute();
+		}
+		if (overviewImage != null) {
+			g2.drawImage(overviewImage, 0, 0, null);
+		}
+		g2.setColor(Color.green);
+		paintState(g2, frames.getState(frames.getFrameCount() - 1));
+	}
 
-		List<Point2D> points = s.getASVPositions();
-		Point2D p = points.get(0);
-		path.moveTo(p.getX(), p.getY());
-		for (int i = 1; i < points.size(); i++) {
-			p = points.get(i);
-			path.lineTo(p.getX(), p.getY());
+	/**
+	 * Draws any frames appended since the overview image was rendered onto
+	 * it, without redrawing the earlier ones.
+	 */
+	private void extendOverview() {
+		if (overviewImage == null
+				|| overviewFrameCount >= frames.getFrameCount()) {
+			return;
 		}
-		path.transform(transform);
-		g2.draw(path);
-		if (animating || !displayingSolution) {
-			p = transform.transform(points.get(0), null);
-			Color color = g2.getColor();
-			Stroke stroke = g2.getStroke();
-			g2.setColor(Color.BLACK);
-			g2.setStroke(new BasicStroke(1));
-			g2.draw(new Ellipse2D.Double(p.getX() - 4, p.getY() - 4, 8, 8));
-			g2.setColor(color);
-			g2.setStroke(stroke);
+		OverviewRenderer renderer = new OverviewRenderer(frames,
+				overviewTransform, overviewImage.getWidth(),
+				overviewImage.getHeight(), samplingPeriod);
+		Graphics2D g2 = overviewImage.createGraphics();
+		try {
+			g2.setStroke(SceneRenderer.STATE_STROKE);
+			renderer.render(g2,
+					renderer.getFirstSampleFrom(overviewFrameCount),
+					renderer.getSampleCount(), null);
+		} finally {
+			g2.dispose();
+		}
+		overviewFrameCount = renderer.getFrameCount();
+	}
+
+	/**
+	 * Called when states have been appended to the solution path, to add
+	 * them to the frames and the overview.
+	 */
+	public void solutionExtended() {
+		if (frames == null || frames.update() == 0) {
+			return;
+		}
+		maxFrameNumber = frames.getFrameCount() - 1;
+		if (isRenderingActively()) {
+			activeRenderer.setMaxFrameNumber(maxFrameNumber);
+		}
+		if (!animating && displayingSolution) {
+			extendOverview();
+			repaint();
+		}
+	}
+
+	/**
+	 * Called on the event dispatch thread when a background overview render
+	 * completes.
+	 */
+	public void overviewRendered(OverviewWorker worker, BufferedImage image) {
+		if (worker != overviewWorker) {
+			return;
+		}
+		overviewImage = image;
+		overviewTransform = worker.getTransform();
+		overviewFrameCount = worker.getFrameCount();
+		extendOverview();
+		repaint();
+	}
+
+	/**
+	 * Called on the event dispatch thread when a background overview render
+	 * fails. The worker is kept, so that the same overview isn't rendered
+	 * again until something changes; the solution is drawn without it.
+	 */
+	public void overviewFailed(OverviewWorker worker, Throwable cause) {
+		if (worker != overviewWorker) {
+			return;
+		}
+		overviewImage = null;
+		visualiser.overviewFailed(cause);
+		repaint();
+	}
+
+	private void cancelOverview() {
+		if (overviewWorker != null) {
+			overviewWorker.abandon();
+			overviewWorker = null;
+		}
+	}
+
+	/**
+	 * Zooms in or out by the given factor, keeping the workspace point under
+	 * the given screen point fixed.
+	 */
+	public void zoom(double factor, Point2D screenPoint) {
+		double width = Math.min(1, Math.max(1 / MAX_ZOOM, view.getWidth()
+				/ factor));
+		double fx = screenPoint.getX() / Math.max(getWidth(), 1);
+		double fy = 1 - screenPoint.getY() / Math.max(getHeight(), 1);
+		double x = view.getMinX() + fx * view.getWidth();
+		double y = view.getMinY() + fy * view.getHeight();
+		setView(x - fx * width, y - fy * width, width);
+	}
+
+	/**
+	 * Moves the view by the given distance in pixels.
+	 */
+	public void pan(int dx, int dy) {
+		double x = view.getMinX() - dx * view.getWidth()
+				/ Math.max(getWidth(), 1);
+		double y = view.getMinY() + dy * view.getHeight()
+				/ Math.max(getHeight(), 1);
+		setView(x, y, view.getWidth());
+	}
+
+	/**
+	 * Shows the whole workspace.
+	 */
+	public void resetView() {
+		setView(0, 0, 1);
+	}
+
+	/**
+	 * Shows a square region of the workspace, moved if necessary to lie
+	 * within it.
+	 */
+	private void setView(double x, double y, double size) {
+		x = Math.max(0, Math.min(1 - size, x));
+		y = Math.max(0, Math.min(1 - size, y));
+		if (x == view.x && y == view.y && size == view.width) {
+			return;
+		}
+		view.setRect(x, y, size, size);
+		cancelOverview();
+		overviewImage = null;
+		repaint();
+	}
+
+	public void setValidationResults(ValidationResults validationResults) {
+		this.validationResults = validationResults;
+		repaint();
+	}
+
+	/**
+	 * Highlights the booms of the given state that collide with obstacles and
+	 * the ASVs that are out of bounds, if the given flags include those
+	 * checks.
+	 */
+	private void paintViolations(Graphics2D g2, ASVConfig cfg, int flags) {
+		if ((flags & ValidationResults.COLLISION) != 0) {
+			g2.setColor(COLLISION_COLOR);
+			scene.paintBooms(g2, cfg, validator.getCollidingBooms(cfg,
+					problemSetup.getObstacleIndex().query(cfg.getBounds())));
+		}
+		if ((flags & ValidationResults.BOUNDS) != 0) {
+			g2.setColor(BOUNDS_COLOR);
+			scene.paintASVMarks(g2, cfg, validator.getOutOfBoundsASVs(cfg));
+		}
+	}
+
+	/**
+	 * Checks the given state for collisions and out-of-bounds ASVs.
+	 */
+	private int checkViolations(ASVConfig cfg) {
+		int flags = 0;
+		if (validator.hasCollision(cfg, problemSetup.getObstacleIndex()
+				.query(cfg.getBounds()))) {
+			flags |= ValidationResults.COLLISION;
+		}
+		if (!validator.fitsBounds(cfg)) {
+			flags |= ValidationResults.BOUNDS;
+		}
+		return flags;
+	}
+
+	/**
+	 * Highlights any collisions or out-of-bounds ASVs in the initial and goal
+	 * states, which are only checked once for each problem.
+	 */
+	private void paintProblemViolations(Graphics2D g2) {
+		if (violationsChecked != problemSetup) {
+			violationsChecked = problemSetup;
+			initialViolations = checkViolations(problemSetup.getInitialState());
+			goalViolations = checkViolations(problemSetup.getGoalState());
+		}
+		if (initialViolations != 0) {
+			paintViolations(g2, problemSetup.getInitialState(),
+					initialViolations);
+		}
+		if (goalViolations != 0) {
+			paintViolations(g2, problemSetup.getGoalState(), goalViolations);
 		}
 	}
 
@@ -175,43 +828,66 @@ public class VisualisationPanel extends JComponent {
 		if (!problemSetup.problemLoaded()) {
 			return;
 		}
+		long paintStart = System.nanoTime();
 		calculateTransform();
 		Graphics2D g2 = (Graphics2D) graphics;
-		g2.setColor(Color.WHITE);
-		g2.fillRect(0, 0, getWidth(), getHeight());
-
-		List<Obstacle> obstacles = problemSetup.getObstacles();
-		if (obstacles != null) {
-			g2.setColor(Color.red);
-			for (Obstacle obs : problemSetup.getObstacles()) {
-				Shape transformed = transform.createTransformedShape(obs
-						.getRect());
-				g2.fill(transformed);
-			}
+		validateStaticLayer();
+		if (isRenderingActively()) {
+			// The canvas covers the panel; just keep its scene up to date.
+			activeRenderer.setScene(scene, staticLayer);
+			return;
+		}
+		paintScene(g2);
+		if (diagnostics != null) {
+			diagnostics.framePainted(System.nanoTime() - paintStart,
+					scene.takeShapeCount() + currentProjection.takeShapeCount());
+			diagnostics.paint(g2, getWidth());
 		}
+		if (getReadError() != reportedReadError) {
+			// The error can't be shown from within painting.
+			SwingUtilities.invokeLater(readErrorCheck);
+		}
+	}
 
-		g2.setStroke(new BasicStroke(2));
+	/**
+	 * Draws the static layer, and the states, overview or current frame over
+	 * it.
+	 */
+	private void paintScene(Graphics2D g2) {
+		if (animating && trail != null) {
+			trail.update(scene, staticLayer, frames, frameNumber, null);
+			g2.drawImage(trail.getImage(), 0, 0, null);
+		} else {
+			g2.drawImage(staticLayer, 0, 0, null);
+		}
+
+		g2.setStroke(SceneRenderer.STATE_STROKE);
 		if (!animating) {
 			if (displayingSolution) {
-				List<ASVConfig> path = problemSetup.getPath();
-				int lastIndex = path.size() - 1;
-				for (int i = 0; i < lastIndex; i += samplingPeriod) {
-					float t = (float) i / lastIndex;
-					g2.setColor(new Color(0, t, 1 - t));
-					paintState(g2, path.get(i));
+				paintOverview(g2);
+				if (comparison != null) {
+					comparison.paintLegend(g2);
 				}
-				g2.setColor(Color.green);
-				paintState(g2, path.get(lastIndex));
 			} else {
 				g2.setColor(Color.blue);
 				paintState(g2, problemSetup.getInitialState());
 
 				g2.setColor(Color.green);
 				paintState(g2, problemSetup.getGoalState());
+
+				paintProblemViolations(g2);
 			}
+		} else if (comparison != null) {
+			comparison.paintFrame(g2, scene, frameNumber);
+			comparison.paintLegend(g2);
 		} else {
 			g2.setColor(Color.blue);
-			paintState(g2, currentState);
+			paintFrame(g2, frameNumber);
+			int flags = validationResults == null ? 0 : validationResults
+					.getFlags(frameNumber);
+			if (flags != 0) {
+				paintViolations(g2, frames.getState(frameNumber), flags);
+			}
 		}
 	}
 }
@@ -15,8 +15,14 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -24,6 +30,7 @@ import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JApplet;
 import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -32,14 +39,20 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JSeparator;
 import javax.swing.JSlider;
 import javax.swing.JSpinner;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.EtchedBorder;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import problem.ASVConfig;
+import problem.ProblemSpec;
+
 public class Visualiser {
 	private Container container;
 
@@ -51,14 +64,21 @@ public class Visualiser {
 	private JMenuBar menuBar;
 	private JMenu fileMenu;
 	private JMenuItem loadProblemItem, loadSolutionItem, exitItem; // assumeDirectSolutionItem
+	private JMenuItem followSolutionItem, compareSolutionsItem;
 	private JMenu animationMenu;
 	private JMenuItem initialiseItem, playPauseItem, stopItem;
+	private JCheckBoxMenuItem activeRenderingItem;
+	private JCheckBoxMenuItem trailItem;
 	private JMenu displayMenu;
 	private JMenuItem problemItem, solutionItem;
+	private JCheckBoxMenuItem diagnosticsItem;
+	private JMenuItem saveDiagnosticsItem;
 
 	private JPanel animationControls;
-	private JSlider manualSlider;
+	private JLabel manualLabel;
+	private FrameSlider manualSlider;
 	private JSlider framerateSlider;
+	private JSpinner speedSpinner;
 
 	private JSpinner samplingSpinner;
 
@@ -86,10 +106,35 @@ public class Visualiser {
 	private static final int FRAMERATE_MAX = 200;
 	private static final int FRAMERATE_INIT = 50;
 
+	private static final int SPEED_MIN = 1;
+	private static final int SPEED_MAX = 10000000;
+	private static final int SPEED_INIT = 50;
+
 	private static final int SAMPLING_PERIOD_INIT = 100;
 
 	private File defaultPath;
 
+	/** Loads files in the background; a LoadWorker or ComparisonWorker */
+	private SwingWorker<?, ?> loadWorker;
+	/** A solution to load once the current problem load succeeds */
+	private File pendingSolutionFile;
+	private JPanel loadingPanel;
+	private JLabel loadingLabel;
+	private JProgressBar loadProgressBar;
+	private JButton cancelLoadButton;
+
+	/** Follows a solution file as it is written */
+	private SolutionFollower solutionFollower;
+	/** Whether any states have been shown from the followed file */
+	private boolean followStarted;
+
+	/** The results of validating the current solution, or null */
+	private ValidationResults validationResults;
+	/** The workers validating parts of the current solution */
+	private List<ValidationWorker> validationWorkers = new ArrayList<ValidationWorker>();
+	/** Why validation of the current solution stopped early, if it did */
+	private String validationFailure;
+
 	private class MenuListener implements ActionListener {
 		public void actionPerformed(ActionEvent e) {
 			String cmd = e.getActionCommand();
@@ -109,6 +154,14 @@ public class Visualiser {
 			} else if (cmd.equals("Load solution")) {
 				setAnimating(false);
 				loadSolution();
+			} else if (cmd.equals("Follow solution")) {
+				setAnimating(false);
+				followSolution();
+			} else if (cmd.equals("Stop following")) {
+				stopFollowing();
+			} else if (cmd.equals("Compare solutions")) {
+				setAnimating(false);
+				compareSolutions();
 			} else if (cmd.equals("Exit")) {
 				container.setVisible(false);
 				System.exit(0);
@@ -120,6 +173,16 @@ public class Visualiser {
 				playPause();
 			} else if (cmd.equals("Stop")) {
 				setAnimating(false);
+			} else if (cmd.equals("Active rendering")) {
+				vp.setActiveRendering(activeRenderingItem.isSelected());
+				activeRenderingItem.setSelected(vp.isActiveRendering());
+			} else if (cmd.equals("Motion trail")) {
+				vp.setShowingTrail(trailItem.isSelected());
+			} else if (cmd.equals("Show diagnostics")) {
+				vp.setShowingDiagnostics(diagnosticsItem.isSelected());
+				saveDiagnosticsItem.setEnabled(diagnosticsItem.isSelected());
+			} else if (cmd.equals("Save diagnostics")) {
+				saveDiagnostics();
 			}
 		}
 	}
@@ -192,6 +255,13 @@ public class Visualiser {
 		}
 	};
 
+	private ChangeListener speedListener = new ChangeListener() {
+		@Override
+		public void stateChanged(ChangeEvent e) {
+			vp.setStepsPerSecond((Integer) speedSpinner.getValue());
+		}
+	};
+
 	private ChangeListener samplingListener = new ChangeListener() {
 		@Override
 		public void stateChanged(ChangeEvent e) {
@@ -206,6 +276,133 @@ public class Visualiser {
 		}
 	};
 
+	private PropertyChangeListener loadProgressListener = new PropertyChangeListener() {
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			if (evt.getSource() == loadWorker
+					&& "progress".equals(evt.getPropertyName())) {
+				loadProgressBar.setValue((Integer) evt.getNewValue());
+			}
+		}
+	};
+
+	private LoadWorker.Listener loadListener = new LoadWorker.Listener() {
+		@Override
+		public void loadSucceeded(LoadWorker worker, ProblemSpec spec) {
+			if (worker != loadWorker) {
+				return;
+			}
+			loadWorker = null;
+			loadingPanel.setVisible(false);
+			vp.setProblemSetup(spec);
+			if (worker.getProblemFile() != null) {
+				vp.problemChanged();
+				setHasProblem(true);
+			}
+			if (worker.getSolutionFile() != null) {
+				vp.solutionChanged();
+				if (worker.getFrameSource() != null) {
+					vp.setFrames(worker.getFrameSource());
+					setHasSolution(true);
+				} else {
+					setHasSolution(spec.solutionLoaded());
+				}
+			}
+			if (pendingSolutionFile != null) {
+				File f = pendingSolutionFile;
+				pendingSolutionFile = null;
+				loadSolution(f);
+			}
+		}
+
+		@Override
+		public void loadFailed(LoadWorker worker, File file, IOException e) {
+			if (worker != loadWorker) {
+				return;
+			}
+			loadWorker = null;
+			pendingSolutionFile = null;
+			loadingPanel.setVisible(false);
+			showFileError(file);
+		}
+	};
+
+	private ComparisonWorker.Listener comparisonListener = new ComparisonWorker.Listener() {
+		@Override
+		public void comparisonLoaded(ComparisonWorker worker,
+				Comparison comparison) {
+			if (worker != loadWorker) {
+				comparison.close();
+				return;
+			}
+			loadWorker = null;
+			loadingPanel.setVisible(false);
+			vp.setProblemSetup(comparison.getReferenceSpec());
+			vp.solutionChanged();
+			vp.setComparison(comparison);
+			setHasSolution(true);
+		}
+
+		@Override
+		public void comparisonFailed(ComparisonWorker worker, File file,
+				IOException e) {
+			if (worker != loadWorker) {
+				return;
+			}
+			loadWorker = null;
+			loadingPanel.setVisible(false);
+			showFileError(file);
+		}
+	};
+
+	private SolutionFollower.Listener followListener = new SolutionFollower.Listener() {
+		@Override
+		public void statesAppended(SolutionFollower follower,
+				List<ASVConfig> states, boolean restart) {
+			if (follower != solutionFollower) {
+				return;
+			}
+			if (restart) {
+				followStarted = false;
+			}
+			if (states.isEmpty()) {
+				return;
+			}
+			if (!followStarted) {
+				ProblemSpec spec = new ProblemSpec(vp.getProblemSetup());
+				spec.setPath(states);
+				vp.setProblemSetup(spec);
+				vp.solutionChanged();
+				setHasSolution(true);
+				followStarted = true;
+			} else {
+				int oldCount = vp.getFrames().getFrameCount();
+				vp.getProblemSetup().appendToPath(states);
+				vp.solutionExtended();
+				updateMaximum();
+				extendValidation(oldCount);
+			}
+		}
+
+		@Override
+		public void followFailed(SolutionFollower follower, IOException e) {
+			if (follower != solutionFollower) {
+				return;
+			}
+			stopFollowing();
+			JOptionPane.showMessageDialog(container, "Error following "
+					+ follower.getFile().getFileName() + ": " + e.getMessage(),
+					"File I/O Error", JOptionPane.ERROR_MESSAGE);
+		}
+	};
+
+	private ActionListener cancelLoadListener = new ActionListener() {
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			cancelLoad();
+		}
+	};
+
 	private ActionListener stopListener = new ActionListener() {
 		@Override
 		public void actionPerformed(ActionEvent arg0) {
@@ -252,6 +449,18 @@ public class Visualiser {
 		infoPanel.add(infoLabel);
 		infoPanel.add(samplingSpinner);
 
+		loadingPanel = new JPanel(new FlowLayout());
+		loadingLabel = new JLabel();
+		loadProgressBar = new JProgressBar(0, 100);
+		loadProgressBar.setStringPainted(true);
+		cancelLoadButton = new JButton("Cancel");
+		cancelLoadButton.addActionListener(cancelLoadListener);
+		loadingPanel.add(loadingLabel);
+		loadingPanel.add(loadProgressBar);
+		loadingPanel.add(cancelLoadButton);
+		loadingPanel.setVisible(false);
+		infoPanel.add(loadingPanel);
+
 		container.add(infoPanel, BorderLayout.NORTH);
 
 		createMenus();
@@ -288,6 +497,18 @@ public class Visualiser {
 		loadSolutionItem.setEnabled(false);
 		fileMenu.add(loadSolutionItem);
 
+		followSolutionItem = new JMenuItem("Follow solution");
+		followSolutionItem.setMnemonic(KeyEvent.VK_F);
+		followSolutionItem.addActionListener(menuListener);
+		followSolutionItem.setEnabled(false);
+		fileMenu.add(followSolutionItem);
+
+		compareSolutionsItem = new JMenuItem("Compare solutions");
+		compareSolutionsItem.setMnemonic(KeyEvent.VK_C);
+		compareSolutionsItem.addActionListener(menuListener);
+		compareSolutionsItem.setEnabled(false);
+		fileMenu.add(compareSolutionsItem);
+
 		fileMenu.addSeparator();
 		exitItem = new JMenuItem("Exit");
 		exitItem.setMnemonic(KeyEvent.VK_X);
@@ -313,6 +534,18 @@ public class Visualiser {
 		solutionItem.addActionListener(menuListener);
 		solutionItem.setEnabled(false);
 		displayMenu.add(solutionItem);
+
+		displayMenu.addSeparator();
+		diagnosticsItem = new JCheckBoxMenuItem("Show diagnostics");
+		diagnosticsItem.setMnemonic(KeyEvent.VK_D);
+		diagnosticsItem.addActionListener(menuListener);
+		displayMenu.add(diagnosticsItem);
+
+		saveDiagnosticsItem = new JMenuItem("Save diagnostics");
+		saveDiagnosticsItem.setMnemonic(KeyEvent.VK_V);
+		saveDiagnosticsItem.addActionListener(menuListener);
+		saveDiagnosticsItem.setEnabled(false);
+		displayMenu.add(saveDiagnosticsItem);
 	}
 
 	private void createAnimationMenu() {
@@ -338,6 +571,17 @@ public class Visualiser {
 		stopItem.addActionListener(menuListener);
 		stopItem.setEnabled(false);
 		animationMenu.add(stopItem);
+
+		animationMenu.addSeparator();
+		activeRenderingItem = new JCheckBoxMenuItem("Active rendering");
+		activeRenderingItem.setMnemonic(KeyEvent.VK_R);
+		activeRenderingItem.addActionListener(menuListener);
+		animationMenu.add(activeRenderingItem);
+
+		trailItem = new JCheckBoxMenuItem("Motion trail");
+		trailItem.setMnemonic(KeyEvent.VK_M);
+		trailItem.addActionListener(menuListener);
+		animationMenu.add(trailItem);
 	}
 
 	private void createAnimationControls() {
@@ -347,9 +591,9 @@ public class Visualiser {
 		animationControls.setLayout(new BoxLayout(animationControls,
 				BoxLayout.PAGE_AXIS));
 
-		JLabel manualLabel = new JLabel("Frame #");
+		manualLabel = new JLabel("Frame #");
 		manualLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-		manualSlider = new JSlider(JSlider.HORIZONTAL);
+		manualSlider = new FrameSlider(JSlider.HORIZONTAL);
 		manualSlider.setPaintTicks(true);
 		manualSlider.setPaintLabels(true);
 		manualSlider.setFont(sliderFont);
@@ -377,6 +621,19 @@ public class Visualiser {
 		frameratePanel.add(Box.createRigidArea(new Dimension(0, 2)));
 		frameratePanel.add(framerateSlider);
 
+		JLabel speedLabel = new JLabel("Steps/s");
+		speedLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+		speedSpinner = new JSpinner(new SpinnerNumberModel(SPEED_INIT,
+				SPEED_MIN, SPEED_MAX, 10));
+		speedSpinner.setMaximumSize(new Dimension(100, 24));
+		speedSpinner.addChangeListener(speedListener);
+		vp.setStepsPerSecond(SPEED_INIT);
+		JPanel speedPanel = new JPanel();
+		speedPanel.setLayout(new BoxLayout(speedPanel, BoxLayout.PAGE_AXIS));
+		speedPanel.add(speedLabel);
+		speedPanel.add(Box.createRigidArea(new Dimension(0, 2)));
+		speedPanel.add(speedSpinner);
+
 		playPauseButton = new JButton(playIcon);
 		playPauseButton.addActionListener(playPauseListener);
 		stopButton = new JButton(stopIcon);
@@ -394,6 +651,8 @@ public class Visualiser {
 		p2.add(Box.createRigidArea(new Dimension(10, 0)));
 		p2.add(stopButton);
 		p2.add(frameratePanel);
+		p2.add(Box.createRigidArea(new Dimension(10, 0)));
+		p2.add(speedPanel);
 		animationControls.add(p2);
 		animationControls.setVisible(false);
 		animationControls.setBorder(BorderFactory.createEmptyBorder(0, 10, 5,
@@ -410,22 +669,79 @@ public class Visualiser {
 		return fc.getSelectedFile();
 	}
 
+	private File[] askForFiles() {
+		JFileChooser fc = new JFileChooser(defaultPath);
+		fc.setMultiSelectionEnabled(true);
+		int returnVal = fc.showOpenDialog(container);
+		if (returnVal != JFileChooser.APPROVE_OPTION) {
+			return null;
+		}
+		return fc.getSelectedFiles();
+	}
+
+	/**
+	 * Called when the solution overview could not be rendered.
+	 */
+	public void overviewFailed(Throwable cause) {
+		JOptionPane.showMessageDialog(container,
+				"Error drawing the solution overview: " + cause,
+				"Overview Error", JOptionPane.ERROR_MESSAGE);
+	}
+
+	/**
+	 * Called when frames of the solution being shown could not be read.
+	 */
+	public void framesFailed(IOException e) {
+		JOptionPane.showMessageDialog(container, e.getMessage(),
+				"File I/O Error", JOptionPane.ERROR_MESSAGE);
+	}
+
 	private void showFileError(File f) {
 		JOptionPane.showMessageDialog(container,
 				"Error loading " + f.getName(), "File I/O Error",
 				JOptionPane.ERROR_MESSAGE);
 	}
 
-	private void loadProblem(File f) {
-		try {
-			vp.getProblemSetup().loadProblem(f.getPath());
-			setHasProblem(true);
-		} catch (IOException e1) {
-			showFileError(f);
-			setHasProblem(false);
+	/**
+	 * Starts loading the given files in the background, cancelling any load
+	 * already in progress. The current problem stays on display until the
+	 * load finishes.
+	 */
+	private void startLoad(File problemFile, File solutionFile) {
+		cancelLoad();
+		stopFollowing();
+		loadWorker = new LoadWorker(loadListener, vp.getProblemSetup(),
+				problemFile, solutionFile);
+		loadWorker.addPropertyChangeListener(loadProgressListener);
+		File f = problemFile != null ? problemFile : solutionFile;
+		loadingLabel.setText("Loading " + f.getName() + "...");
+		loadProgressBar.setValue(0);
+		loadingPanel.setVisible(true);
+		loadWorker.execute();
+	}
+
+	private void cancelLoad() {
+		pendingSolutionFile = null;
+		if (loadWorker != null) {
+			loadWorker.cancel(false);
+			loadWorker = null;
+			loadingPanel.setVisible(false);
 		}
 	}
 
+	private void loadProblem(File f) {
+		startLoad(f, null);
+	}
+
+	/**
+	 * Loads the given problem in the background, followed by the given
+	 * solution if the problem loads successfully.
+	 */
+	public void loadFiles(File problemFile, File solutionFile) {
+		loadProblem(problemFile);
+		pendingSolutionFile = solutionFile;
+	}
+
 	private void loadProblem() {
 		File f = askForFile();
 		if (f == null) {
@@ -435,13 +751,62 @@ public class Visualiser {
 	}
 
 	private void loadSolution(File f) {
-		try {
-			vp.getProblemSetup().loadSolution(f.getPath());
-			setHasSolution(true);
-		} catch (IOException e1) {
-			showFileError(f);
-			setHasSolution(false);
+		startLoad(null, f);
+	}
+
+	/**
+	 * Starts following a solution file that is still being written, showing
+	 * the states in it so far and adding new ones as they are appended.
+	 */
+	private void followSolution(File f) {
+		cancelLoad();
+		stopFollowing();
+		solutionFollower = new SolutionFollower(followListener, f.toPath(),
+				vp.getProblemSetup().getASVCount());
+		followStarted = false;
+		followSolutionItem.setText("Stop following");
+		solutionFollower.execute();
+	}
+
+	private void followSolution() {
+		File f = askForFile();
+		if (f == null) {
+			return;
+		}
+		followSolution(f);
+	}
+
+	private void stopFollowing() {
+		if (solutionFollower != null) {
+			solutionFollower.stop();
+			solutionFollower = null;
+			followSolutionItem.setText("Follow solution");
+		}
+	}
+
+	/**
+	 * Starts loading the given solutions to the current problem in the
+	 * background, to be played in sync once they have all loaded.
+	 */
+	public void compareSolutions(List<File> files) {
+		cancelLoad();
+		stopFollowing();
+		ComparisonWorker worker = new ComparisonWorker(comparisonListener,
+				vp.getProblemSetup(), files);
+		worker.addPropertyChangeListener(loadProgressListener);
+		loadWorker = worker;
+		loadingLabel.setText("Loading " + files.size() + " solutions...");
+		loadProgressBar.setValue(0);
+		loadingPanel.setVisible(true);
+		worker.execute();
+	}
+
+	private void compareSolutions() {
+		File[] files = askForFiles();
+		if (files == null || files.length == 0) {
+			return;
 		}
+		compareSolutions(Arrays.asList(files));
 	}
 
 	private void loadSolution() {
@@ -452,6 +817,29 @@ public class Visualiser {
 		loadSolution(f);
 	}
 
+	/**
+	 * Saves the recorded diagnostics to a CSV file chosen by the user.
+	 */
+	private void saveDiagnostics() {
+		Diagnostics diagnostics = vp.getDiagnostics();
+		if (diagnostics == null) {
+			return;
+		}
+		JFileChooser fc = new JFileChooser(defaultPath);
+		fc.setSelectedFile(new File(defaultPath, "diagnostics.csv"));
+		if (fc.showSaveDialog(container) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		File f = fc.getSelectedFile();
+		try {
+			diagnostics.save(f);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(container,
+					"Error saving " + f.getName() + ": " + e.getMessage(),
+					"File I/O Error", JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
 	private void playPause() {
 		if (!animating) {
 			setAnimating(true);
@@ -480,6 +868,8 @@ public class Visualiser {
 	private void setHasProblem(boolean hasProblem) {
 		this.hasProblem = hasProblem;
 		loadSolutionItem.setEnabled(hasProblem);
+		followSolutionItem.setEnabled(hasProblem);
+		compareSolutionsItem.setEnabled(hasProblem);
 		problemItem.setEnabled(hasProblem);
 		setHasSolution(false);
 		setInfoText();
@@ -490,8 +880,80 @@ public class Visualiser {
 		return hasProblem;
 	}
 
+	private ValidationWorker.Listener validationListener = new ValidationWorker.Listener() {
+		@Override
+		public void validationProgressed(ValidationWorker worker) {
+			if (worker.getResults() != validationResults) {
+				return;
+			}
+			manualSlider.repaint();
+			updateFrameLabel(manualSlider.getValue());
+			vp.repaint();
+		}
+
+		@Override
+		public void validationFailed(ValidationWorker worker, Throwable cause) {
+			if (worker.getResults() != validationResults) {
+				return;
+			}
+			validationFailure = cause.getMessage() != null ? cause
+					.getMessage() : cause.toString();
+			updateFrameLabel(manualSlider.getValue());
+		}
+	};
+
+	/**
+	 * Starts validating the whole of the current solution in the background,
+	 * abandoning any earlier validation.
+	 */
+	private void startValidation() {
+		stopValidation();
+		validationResults = new ValidationResults();
+		manualSlider.setValidationResults(validationResults);
+		vp.setValidationResults(validationResults);
+		extendValidation(0);
+	}
+
+	/**
+	 * Validates the frames of the current solution from the given frame on.
+	 */
+	private void extendValidation(int start) {
+		FrameSource frames = vp.getFrames();
+		if (validationResults == null || frames == null
+				|| start >= frames.getFrameCount()) {
+			return;
+		}
+		for (Iterator<ValidationWorker> it = validationWorkers.iterator(); it
+				.hasNext();) {
+			if (it.next().isDone()) {
+				it.remove();
+			}
+		}
+		ValidationWorker worker = new ValidationWorker(validationListener,
+				validationResults, vp.getProblemSetup(), frames, start,
+				frames.getFrameCount());
+		validationWorkers.add(worker);
+		worker.execute();
+	}
+
+	private void stopValidation() {
+		for (ValidationWorker worker : validationWorkers) {
+			worker.abandon();
+		}
+		validationWorkers.clear();
+		validationResults = null;
+		validationFailure = null;
+		manualSlider.setValidationResults(null);
+		vp.setValidationResults(null);
+	}
+
 	private void setHasSolution(boolean hasSolution) {
 		this.hasSolution = hasSolution;
+		if (hasSolution) {
+			startValidation();
+		} else {
+			stopValidation();
+		}
 		solutionItem.setEnabled(hasSolution);
 		animationMenu.setEnabled(hasSolution);
 		vp.setDisplayingSolution(hasSolution);
@@ -538,7 +1000,7 @@ public class Visualiser {
 	}
 
 	public void updateMaximum() {
-		int maximum = vp.getProblemSetup().getPath().size() - 1;
+		int maximum = vp.getFrames().getFrameCount() - 1;
 		manualSlider.setMaximum(maximum);
 		updateTickSpacing();
 	}
@@ -582,16 +1044,55 @@ public class Visualiser {
 
 	public void setFrameNumber(int frameNumber) {
 		manualSlider.setValue(frameNumber);
+		updateFrameLabel(frameNumber);
+	}
+
+	private void updateFrameLabel(int frameNumber) {
+		FrameSource frames = vp.getFrames();
+		if (frames == null || frameNumber >= frames.getFrameCount()) {
+			return;
+		}
+		String text;
+		Comparison comparison = vp.getComparison();
+		if (comparison == null) {
+			text = String.format("Frame # %d (cost so far: %.4f)",
+					frameNumber, frames.getCumulativeCost(frameNumber));
+		} else {
+			StringBuilder costs = new StringBuilder();
+			for (int i = 0; i < comparison.getSolutionCount(); i++) {
+				int frame = comparison.getFrame(i, frameNumber);
+				costs.append(i == 0 ? "" : " / ").append(
+						String.format("%.4f", comparison.getFrames(i)
+								.getCumulativeCost(frame)));
+			}
+			text = String.format("Frame # %d (costs so far: %s)",
+					frameNumber, costs);
+		}
+		if (validationResults != null
+				&& validationResults.isInvalid(frameNumber)) {
+			text += " - invalid: "
+					+ ValidationResults.describe(validationResults
+							.getFlags(frameNumber));
+		}
+		if (validationFailure != null) {
+			text += " - validation stopped: " + validationFailure;
+		}
+		manualLabel.setText(text);
 	}
 
 	public static void main(String[] args) {
 		JFrame frame = new JFrame("Assignment 1 visualiser");
-		Visualiser vis = new Visualiser(frame);
+		final Visualiser vis = new Visualiser(frame);
 		if (args.length > 0) {
-			vis.loadProblem(new File(args[0]));
-			if (vis.hasProblem() && args.length >= 2) {
-				vis.loadSolution(new File(args[1]));
-			}
+			final File problemFile = new File(args[0]);
+			final File solutionFile = args.length >= 2 ? new File(args[1])
+					: null;
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					vis.loadFiles(problemFile, solutionFile);
+				}
+			});
 		}
 		frame.setSize(700, 766);
 		frame.setLocation(300, 100);